@@ -1,14 +1,15 @@
 package ai;
 
 import model.GameException;
+import model.GameLogicController;
 import model.Move;
+import model.MoveStatus;
 import model.Player;
+import model.TimeControl;
 import model.cards.Card;
 
 import java.util.ArrayList;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.FutureTask;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
 /**
@@ -36,6 +37,17 @@ import java.util.concurrent.TimeoutException;
  */
 @SuppressWarnings("unused")
 public abstract class AI extends Player {
+  /** The executor running the decisions, or <code>null</code> for the shared one */
+  private DecisionExecutor executor;
+  /** The executor lane the AI is bound to, or <code>-1</code> if not bound yet */
+  private int lane = -1;
+  /** The deadline of the latest decision, whose published move is played when it times out */
+  private volatile Deadline deadline = Deadline.NONE;
+  /** The CPU time of the last decision, in nanoseconds, or <code>-1</code> if not measured */
+  private volatile long decisionCpuNanos = -1;
+  /** The time charged to the time bank for the last decision, in nanoseconds, or <code>-1</code> if unknown */
+  private volatile long decisionNanos = -1;
+
   /**
    * Creates an {@link AI} object representing an AI for the game
    *
@@ -58,29 +70,169 @@ public abstract class AI extends Player {
    */
   public void initialize() {}
 
+  /**
+   * Sets the executor running the AI's decisions
+   *
+   * @param executor the executor, or <code>null</code> for {@link DecisionExecutor#shared()}
+   */
+  public final void setExecutor(DecisionExecutor executor) {
+    this.executor = executor;
+    this.lane = -1;
+  }
+
+  /**
+   * Returns the executor running the AI's decisions
+   *
+   * @return the executor
+   */
+  public final DecisionExecutor executor() {
+    return executor != null ? executor : DecisionExecutor.shared();
+  }
+
+  /**
+   * Returns the deadline of the decision running on the calling thread. Long decisions should
+   * poll it, and return as soon as it expires. Helper threads of a decision should be handed
+   * its deadline, since they have none of their own
+   *
+   * @return the deadline, which is {@link Deadline#NONE} when decisions have no timeout or
+   * when called outside a decision
+   */
+  protected final Deadline deadline() { return Deadline.current(); }
+
+  /**
+   * Publishes the best move found so far by the decision running on the calling thread. When
+   * the decision times out, the latest published move is played instead of discarding the
+   * first card, so an iterative or anytime search should publish every improvement. A move
+   * published by an earlier decision that outlived its timeout is ignored. Publishing is
+   * lock-free and cheap enough to be done often
+   *
+   * @param move the best move so far
+   * @see Deadline#publish(Move)
+   */
+  protected final void publish(Move move) { Deadline.current().publish(move); }
+
+  /**
+   * Sets the deadline of the next decision
+   *
+   * @param deadline the deadline
+   */
+  final void setDeadline(Deadline deadline) { this.deadline = deadline; }
+
+  /**
+   * Returns the time left in the AI's time bank, when the game has a time control. The current
+   * decision may use all of it, see {@link Deadline#remainingMillis()}
+   *
+   * @return the time left in milliseconds, or <code>-1</code> if the game has no time control
+   * @see GameLogicController#setTimeControl(TimeControl)
+   */
+  protected final long timeBank() { return game().timeBank(index()); }
+
+  /**
+   * Returns the CPU time of the last decision. Decisions made without a timeout are not measured
+   *
+   * @return the CPU time in nanoseconds, or <code>-1</code> if not measured
+   */
+  public final long decisionCpuNanos() { return decisionCpuNanos; }
+
+  /**
+   * Sets the CPU time of the last decision
+   *
+   * @param nanos the CPU time in nanoseconds, or <code>-1</code> if not measured
+   */
+  final void setDecisionCpuNanos(long nanos) { this.decisionCpuNanos = nanos; }
+
+  /**
+   * Sets the time charged to the time bank for the last decision, which does not include
+   * the time it waited to be run
+   *
+   * @param nanos the time in nanoseconds, or <code>-1</code> if unknown
+   */
+  final void setDecisionNanos(long nanos) { this.decisionNanos = nanos; }
+
+  /**
+   * Returns the executor lane the AI is bound to
+   *
+   * @return the lane index, or <code>-1</code> if not bound yet
+   */
+  final int lane() { return lane; }
+
+  /**
+   * Binds the AI to an executor lane
+   *
+   * @param lane the lane index
+   */
+  final void setLane(int lane) { this.lane = lane; }
+
   @Override
   protected final void onMovementPrompt() {
-    FutureTask<Move> task = new FutureTask<>(this::makeDecision);
-    Move move = null;
+    this.play(this.decide());
+  }
+
+  /**
+   * Asks the AI for its decision within the game's decision timeout, or within its time bank
+   * when the game has a time control, without playing it. The timeout is a CPU time budget,
+   * see {@link DecisionExecutor}
+   *
+   * @return the decided move, the best published move or else a discard of the first card
+   * if the decision timed out, or <code>null</code> if the decision failed
+   */
+  public final Move decide() {
+    long timeout = game().decisionBudget(index());
+    if (timeout <= 0) {
+      // Trusted AIs decide directly on the game's thread
+      this.freezeStateOnDemand();
+      this.deadline = Deadline.NONE;
+      this.decisionCpuNanos = -1;
+      try {
+        return makeDecision();
+      } catch (RuntimeException e) {
+        System.out.println("Unallowed decision: " + e.getMessage());
+        return null;
+      }
+    }
+    // Searches deal from a copy of the round packed here, on the game's thread
+    this.freezeState();
+    long start = System.nanoTime();
+    this.decisionCpuNanos = -1;
+    this.decisionNanos = -1;
     try {
-      new Thread(task).start();
-      move = task.get(5, TimeUnit.SECONDS);
+      Move move = executor().call(this, this::makeDecision, timeout);
       System.out.println(move);
-      game().playMove(move);
+      return move;
     } catch (InterruptedException e) {
       System.out.println("Decision making interrupted");
     } catch (TimeoutException e) {
+      Move best = deadline.best();
+      if (best != null) {
+        System.out.println("Decision timeout. Playing the best published move: " + best);
+        return best;
+      }
       System.out.println("Decision timeout. Defaulting to discarding the first card");
-      move = Move.NewDiscardMove(index(), 0);
-      try { game().playMove(move); } catch (GameException ignored) {}
-    } catch (GameException | ExecutionException e) {
+      return Move.NewDiscardMove(index(), 0);
+    } catch (ExecutionException | RuntimeException e) {
       System.out.println("Unallowed decision: " + e.getMessage());
-      if (move != null) {
-        System.out.println("Defaulting to discarding the played card");
-        move = Move.NewDiscardMove(index(), move.handIndex());
-        try { game().playMove(move); } catch (GameException ignored) {}
-      }
+    } finally {
+      // Charge the time bank with the time the decision ran, as reported by the executor
+      long used = decisionNanos >= 0 ? decisionNanos : System.nanoTime() - start;
+      game().chargeDecision(index(), used);
+    }
+    return null;
+  }
+
+  /**
+   * Plays the specified decision. When the move is not allowed, the chosen card is discarded instead
+   *
+   * @param move the decided move, or <code>null</code> to play nothing
+   */
+  public final void play(Move move) {
+    if (move == null) return;
+    MoveStatus status = game().validate(move);
+    if (status != MoveStatus.OK) {
+      System.out.println("Unallowed decision: " + status);
+      System.out.println("Defaulting to discarding the played card");
+      move = Move.NewDiscardMove(index(), move.handIndex());
     }
+    try { game().playMove(move); } catch (GameException ignored) {}
   }
 
   /**
@@ -0,0 +1,68 @@
+package ai;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * The {@link CpuClock} class reads the CPU time of threads through the {@link ThreadMXBean}.
+ * <p>
+ * CPU time is only counted while a thread actually runs, so unlike wall-clock time it
+ * does not grow when the thread waits for a core on a loaded machine. Every read returns
+ * <code>-1</code> when the thread's CPU time cannot be measured, as for virtual threads.
+ * </p>
+ */
+final class CpuClock {
+  /** The thread management bean */
+  private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+  /** Marks that thread CPU time can be measured */
+  private static final boolean SUPPORTED;
+
+  static {
+    boolean supported = false;
+    try {
+      if (THREADS.isThreadCpuTimeSupported() && !THREADS.isThreadCpuTimeEnabled()) {
+        THREADS.setThreadCpuTimeEnabled(true);
+      }
+      supported = THREADS.isThreadCpuTimeSupported() && THREADS.isThreadCpuTimeEnabled();
+    } catch (UnsupportedOperationException | SecurityException ignored) {}
+    SUPPORTED = supported;
+  }
+
+  private CpuClock() {}
+
+  /**
+   * Checks if thread CPU time can be measured
+   *
+   * @return <code>true</code> if it can be measured
+   */
+  static boolean supported() { return SUPPORTED; }
+
+  /**
+   * Returns the CPU time of the current thread
+   *
+   * @return the CPU time in nanoseconds, or <code>-1</code> if it cannot be measured
+   */
+  static long current() {
+    if (!SUPPORTED) return -1;
+    try {
+      return THREADS.getCurrentThreadCpuTime();
+    } catch (UnsupportedOperationException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * Returns the CPU time of the specified thread
+   *
+   * @param thread the thread
+   * @return the CPU time in nanoseconds, or <code>-1</code> if it cannot be measured
+   */
+  static long of(Thread thread) {
+    if (!SUPPORTED) return -1;
+    try {
+      return THREADS.getThreadCpuTime(thread.getId());
+    } catch (UnsupportedOperationException e) {
+      return -1;
+    }
+  }
+}
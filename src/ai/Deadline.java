@@ -0,0 +1,200 @@
+package ai;
+
+import model.Move;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The {@link Deadline} class marks the time by which an {@link AI} must return its decision.
+ * <p>
+ * Long searches should poll {@link Deadline#expired()} and return their best move so far
+ * once it is <code>true</code>. A decision's budget is counted in CPU time of the deciding
+ * thread when it can be measured, so time spent waiting for a core on a loaded machine is
+ * not charged to the AI; a wall-clock cap still bounds the decision in any case. A deadline
+ * also expires when the decision is cancelled, which happens as soon as the game stops
+ * waiting for it; the deciding thread is then interrupted as well.
+ * </p>
+ * <p>
+ * A deadline also holds the best move published so far by its decision, see
+ * {@link Deadline#publish(Move)}. When the decision times out, that move is played instead
+ * of the default discard, so anytime searches can use their whole budget safely.
+ * </p>
+ *
+ * @see AI#deadline()
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public final class Deadline {
+  /** The deadline of a decision made without a timeout, which never expires */
+  public static final Deadline NONE = new Deadline();
+  /** The deadline of the decision running on each thread */
+  private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+  /** The wall-clock cap, in nanoseconds from the start of the decision */
+  private final long cap;
+  /** The wall-clock cap, as a {@link System#nanoTime()} value, once the decision has begun */
+  private volatile long end;
+  /** Marks that the decision has begun */
+  private volatile boolean begun;
+  /** Marks that the deadline has an expiry time */
+  private final boolean bounded;
+  /** The CPU time budget in nanoseconds, or <code>-1</code> if the budget is wall-clock time */
+  private final long budget;
+  /** The CPU time of the deciding thread when the decision began, or <code>-1</code> if unknown */
+  private volatile long cpuStart = -1;
+  /** Marks that the decision was cancelled */
+  private volatile boolean cancelled;
+  /** The best move published so far */
+  private final AtomicReference<Move> best = new AtomicReference<>();
+
+  /**
+   * Creates a {@link Deadline} object that never expires
+   */
+  private Deadline() {
+    this.cap = 0;
+    this.bounded = false;
+    this.budget = -1;
+  }
+
+  /**
+   * Creates a {@link Deadline} object expiring once the deciding thread has used the specified
+   * CPU time, or after the specified wall-clock cap from the start of the decision, whichever
+   * comes first. Neither is counted while the decision waits to be run
+   *
+   * @param budgetMillis the CPU time budget in milliseconds, or <code>-1</code> for none
+   * @param capMillis    the wall-clock cap, in milliseconds
+   */
+  Deadline(long budgetMillis, long capMillis) {
+    this.cap = capMillis * 1_000_000L;
+    this.bounded = true;
+    this.budget = budgetMillis < 0 ? -1 : budgetMillis * 1_000_000L;
+  }
+
+  /**
+   * Starts counting the CPU time and the wall-clock cap, and binds the deadline to the
+   * deciding thread. Called on the deciding thread, right before deciding
+   */
+  final void begin() {
+    this.cpuStart = CpuClock.current();
+    this.end = System.nanoTime() + cap;
+    this.begun = true;
+    CURRENT.set(this);
+  }
+
+  /**
+   * Unbinds the deadline from the deciding thread. Called on the deciding thread, once decided
+   */
+  final void finish() {
+    CURRENT.remove();
+  }
+
+  /**
+   * Returns the deadline of the decision running on the current thread
+   *
+   * @return the deadline, or {@link Deadline#NONE} if no timed decision runs on this thread
+   */
+  static Deadline current() {
+    Deadline deadline = CURRENT.get();
+    return deadline != null ? deadline : NONE;
+  }
+
+  /**
+   * Checks if the decision must be returned now. Must be called on the deciding thread
+   *
+   * @return <code>true</code> if the budget or the cap is spent, or the decision was cancelled
+   */
+  public final boolean expired() {
+    if (cancelled) return true;
+    if (!bounded || !begun) return false;
+    if (System.nanoTime() - end >= 0) return true;
+    if (budget < 0) return false;
+    long used = cpuNanos();
+    return used >= 0 && used >= budget;
+  }
+
+  /**
+   * Returns the time left before the deadline. Must be called on the deciding thread
+   *
+   * @return the time left in milliseconds, <code>0</code> if expired, or {@link Long#MAX_VALUE}
+   * if the deadline never expires
+   */
+  public final long remainingMillis() {
+    if (cancelled) return 0;
+    if (!bounded) return Long.MAX_VALUE;
+    long left = begun ? end - System.nanoTime() : cap;
+    long used = budget < 0 ? -1 : cpuNanos();
+    if (used >= 0) left = Math.min(left, budget - used);
+    return Math.max(0, left / 1_000_000L);
+  }
+
+  /**
+   * Returns the CPU time the deciding thread has used on the decision. Must be called on the
+   * deciding thread
+   *
+   * @return the CPU time in nanoseconds, or <code>-1</code> if it cannot be measured
+   */
+  public final long cpuNanos() {
+    return cpuNanos(CpuClock.current());
+  }
+
+  /**
+   * Returns the CPU time the specified deciding thread has used on the decision
+   *
+   * @param thread the deciding thread
+   * @return the CPU time in nanoseconds, or <code>-1</code> if it cannot be measured
+   */
+  final long cpuNanos(Thread thread) {
+    return cpuNanos(CpuClock.of(thread));
+  }
+
+  /**
+   * Returns the CPU time used on the decision, from a reading of the deciding thread's clock
+   *
+   * @param now the CPU time of the deciding thread, in nanoseconds
+   * @return the CPU time in nanoseconds, or <code>-1</code> if it cannot be measured
+   */
+  private long cpuNanos(long now) {
+    long start = cpuStart;
+    return start < 0 || now < 0 ? -1 : now - start;
+  }
+
+  /**
+   * Returns the CPU time budget
+   *
+   * @return the budget in nanoseconds, or <code>-1</code> if the budget is wall-clock time
+   */
+  public final long budgetNanos() { return budget; }
+
+  /**
+   * Publishes the best move found so far, replacing any previously published move. The
+   * move is played if the decision times out. Moves published after the decision has
+   * ended are ignored. A search running on helper threads should publish through the
+   * deadline it was given, since {@link AI#publish(Move)} only reaches the decision
+   * running on the calling thread
+   *
+   * @param move the best move so far
+   */
+  public final void publish(Move move) {
+    if (bounded && !cancelled) best.set(move);
+  }
+
+  /**
+   * Returns the best move published so far
+   *
+   * @return the move, or <code>null</code> if none was published
+   */
+  public final Move best() { return best.get(); }
+
+  /**
+   * Checks if the decision was cancelled
+   *
+   * @return <code>true</code> if the game stopped waiting for the decision
+   */
+  public final boolean cancelled() { return cancelled; }
+
+  /**
+   * Cancels the decision
+   */
+  final void cancel() {
+    if (bounded) this.cancelled = true;
+  }
+}
@@ -0,0 +1,623 @@
+package ai;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The {@link DecisionExecutor} class runs the decisions of {@link AI} players on reused threads.
+ * <p>
+ * The executor holds a fixed number of lanes, each backed by one warm daemon thread. An AI
+ * is bound to a lane on its first decision and prefers it from then on, so its thread-locals,
+ * its scratch state, and the JIT-compiled code it runs usually stay warm from one turn to the
+ * next. When its lane is busy with another decision, the AI decides on an idle lane instead,
+ * and only waits for its own lane when every lane is busy. On a JDK
+ * with virtual threads, {@link DecisionExecutor#virtualThreads()} runs every decision on
+ * a fresh virtual thread instead, which is cheap to create but keeps no thread-locals.
+ * </p>
+ * <p>
+ * A decision's budget is counted in CPU time of its thread, measured through the
+ * {@link java.lang.management.ThreadMXBean}, so a decision is not timed out because its
+ * thread waited for a core on a loaded machine. The wall-clock time the game waits is
+ * still capped at {@link DecisionExecutor#wallClockFactor()} times the budget. When thread
+ * CPU time cannot be measured, or with {@link DecisionExecutor#setCpuBudgets(boolean)}
+ * off, the budget is wall-clock time. Both are counted from the moment the decision starts
+ * running, so the time it waits for a busy lane is not charged to the AI.
+ * </p>
+ * <p>
+ * A decision that times out is cancelled: its {@link Deadline} expires and its thread is
+ * interrupted. If it still runs after {@link DecisionExecutor#CANCEL_GRACE_MILLIS}, its
+ * thread is handed to the executor's {@link Quarantine}, and the AI is moved to the
+ * quarantine lane for its later decisions.
+ * </p>
+ * <p>
+ * Every AI uses {@link DecisionExecutor#shared()} unless it is given another executor
+ * with {@link AI#setExecutor(DecisionExecutor)}.
+ * </p>
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public final class DecisionExecutor {
+  /** The time a cancelled decision is given to stop before its thread is quarantined, in milliseconds */
+  public static final long CANCEL_GRACE_MILLIS = 50;
+  /** The default wall-clock cap of a decision, as a multiple of its CPU time budget */
+  public static final long DEFAULT_WALL_CLOCK_FACTOR = 3;
+  /** The shortest wait between two reads of a decision's CPU time, in nanoseconds */
+  private static final long POLL_NANOS = 1_000_000L;
+
+  /** The executor shared by all AIs */
+  private static volatile DecisionExecutor shared;
+
+  /**
+   * The single-thread executors of the lanes, followed by the quarantine lane, or a single
+   * per-task executor for virtual threads
+   */
+  private final AtomicReferenceArray<ExecutorService> lanes;
+  /** The number of lanes, not counting the quarantine lane */
+  private final int size;
+  /** The number of decisions submitted to each lane and not yet accounted for */
+  private final AtomicIntegerArray pending;
+  /** The threads left running by cancelled decisions */
+  private final Quarantine quarantine = new Quarantine();
+  /** Marks that decisions run on virtual threads */
+  private final boolean virtual;
+  /** The lane given to the next bound AI */
+  private final AtomicInteger nextLane = new AtomicInteger();
+  /** Marks that budgets are counted in CPU time */
+  private volatile boolean cpuBudgets = true;
+  /** The wall-clock cap of a decision, as a multiple of its CPU time budget */
+  private volatile long wallClockFactor = DEFAULT_WALL_CLOCK_FACTOR;
+
+  /** The number of created threads */
+  private final AtomicLong threadsCreated = new AtomicLong();
+  /** The number of submitted decisions */
+  private final AtomicLong submitted = new AtomicLong();
+  /** The number of decisions that returned in time */
+  private final AtomicLong completed = new AtomicLong();
+  /** The number of decisions that timed out */
+  private final AtomicLong timedOut = new AtomicLong();
+  /** The number of decisions that threw */
+  private final AtomicLong failed = new AtomicLong();
+  /** The number of timed-out decisions that stopped once cancelled */
+  private final AtomicLong cancelled = new AtomicLong();
+  /** The number of decisions being waited for */
+  private final AtomicInteger active = new AtomicInteger();
+  /** The total time spent waiting for decisions, in nanoseconds */
+  private final AtomicLong waitNanos = new AtomicLong();
+  /** The number of decisions whose CPU time was measured */
+  private final AtomicLong measured = new AtomicLong();
+  /** The total CPU time of the measured decisions, in nanoseconds */
+  private final AtomicLong cpuNanos = new AtomicLong();
+
+  /**
+   * Creates a {@link DecisionExecutor} object with the specified number of platform thread lanes
+   *
+   * @param lanes the number of lanes
+   */
+  public DecisionExecutor(int lanes) {
+    if (lanes < 1) throw new IllegalArgumentException("An executor needs at least one lane");
+    this.lanes = new AtomicReferenceArray<>(lanes + 1);
+    this.size = lanes;
+    this.pending = new AtomicIntegerArray(lanes + 1);
+    this.virtual = false;
+    for (int i = 0; i <= lanes; i++) this.lanes.set(i, newLane(i));
+  }
+
+  /**
+   * Creates a {@link DecisionExecutor} object running every decision on a new virtual thread
+   *
+   * @param factory the virtual thread factory
+   * @throws ReflectiveOperationException when the JDK has no virtual threads
+   */
+  private DecisionExecutor(ThreadFactory factory) throws ReflectiveOperationException {
+    ThreadFactory counting = runnable -> {
+      threadsCreated.incrementAndGet();
+      return factory.newThread(runnable);
+    };
+    Object executor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                                     .invoke(null, counting);
+    this.lanes = new AtomicReferenceArray<>(new ExecutorService[]{(ExecutorService) executor});
+    this.size = 1;
+    this.pending = new AtomicIntegerArray(1);
+    this.virtual = true;
+  }
+
+  /**
+   * Creates the single-thread executor of a lane
+   *
+   * @param lane the lane index, where the last index is the quarantine lane
+   * @return the executor
+   */
+  private ExecutorService newLane(int lane) {
+    boolean quarantined = lane == size;
+    String name = quarantined ? "ai-quarantine" : "ai-decision-" + lane;
+    ThreadGroup group = quarantined ? quarantine.group() : null;
+    return Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(group, runnable, name);
+      thread.setDaemon(true);
+      threadsCreated.incrementAndGet();
+      return thread;
+    });
+  }
+
+  /**
+   * Returns the executor shared by all AIs, creating it on first use with one lane per processor
+   *
+   * @return the shared executor
+   */
+  public static DecisionExecutor shared() {
+    DecisionExecutor executor = shared;
+    if (executor == null) {
+      synchronized (DecisionExecutor.class) {
+        executor = shared;
+        if (executor == null) {
+          executor = new DecisionExecutor(Runtime.getRuntime().availableProcessors());
+          shared = executor;
+        }
+      }
+    }
+    return executor;
+  }
+
+  /**
+   * Creates an executor running every decision on a new virtual thread, when the JDK has them
+   *
+   * @return the executor, or <code>null</code> if virtual threads are not available
+   */
+  public static DecisionExecutor virtualThreads() {
+    try {
+      Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+      Class<?> type = Class.forName("java.lang.Thread$Builder");
+      type.getMethod("name", String.class, long.class).invoke(builder, "ai-decision-", 0L);
+      ThreadFactory factory = (ThreadFactory) type.getMethod("factory").invoke(builder);
+      return new DecisionExecutor(factory);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      return null;
+    }
+  }
+
+  /**
+   * The {@link Running} class wraps a decision to learn which thread runs it, and when it stops
+   *
+   * @param <T> the result type
+   */
+  private static final class Running<T> implements Callable<T> {
+    /** The wrapped decision */
+    private final Callable<T> decision;
+    /** The deadline of the decision */
+    private final Deadline deadline;
+    /** The {@link System#nanoTime()} value when the decision started */
+    private volatile long started;
+    /** The thread running the decision, once started */
+    private volatile Thread thread;
+    /** Marks that the decision has returned or thrown */
+    private volatile boolean stopped;
+    /** The CPU time of the decision once stopped, in nanoseconds, or <code>-1</code> if unknown */
+    private volatile long cpu = -1;
+    /** The wall-clock time of the decision once stopped, in nanoseconds */
+    private volatile long wall;
+
+    /**
+     * Creates a {@link Running} object wrapping the specified decision
+     *
+     * @param decision the decision
+     * @param deadline the deadline of the decision
+     */
+    private Running(Callable<T> decision, Deadline deadline) {
+      this.decision = decision;
+      this.deadline = deadline;
+    }
+
+    @Override
+    public T call() throws Exception {
+      deadline.begin();
+      this.started = System.nanoTime();
+      synchronized (this) {
+        this.thread = Thread.currentThread();
+        this.notifyAll();
+      }
+      try {
+        return decision.call();
+      } finally {
+        deadline.finish();
+        this.cpu = deadline.cpuNanos();
+        this.wall = System.nanoTime() - started;
+        synchronized (this) {
+          this.stopped = true;
+          this.notifyAll();
+        }
+      }
+    }
+
+    /**
+     * Waits for a decision to start
+     *
+     * @param millis the longest time to wait, in milliseconds
+     * @throws InterruptedException when the waiting thread is interrupted
+     */
+    private synchronized void awaitStart(long millis) throws InterruptedException {
+      if (thread == null) this.wait(Math.max(1, millis));
+    }
+
+    /**
+     * Returns the wall-clock time the decision has been running, or ran once stopped
+     *
+     * @return the time in nanoseconds, or <code>0</code> if it has not started
+     */
+    private long elapsed() {
+      if (stopped) return wall;
+      return thread == null ? 0 : System.nanoTime() - started;
+    }
+
+    /**
+     * Waits for a started decision to stop
+     *
+     * @param millis the time to wait, in milliseconds
+     * @return <code>true</code> if the decision never started or has stopped
+     * @throws InterruptedException when the waiting thread is interrupted
+     */
+    private synchronized boolean await(long millis) throws InterruptedException {
+      long end = System.nanoTime() + millis * 1_000_000L;
+      while (thread != null && !stopped) {
+        long left = (end - System.nanoTime()) / 1_000_000L;
+        if (left <= 0) return false;
+        this.wait(left);
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Runs a decision of the specified AI on its lane, or on an idle lane when its own is busy,
+   * and waits for its result, binding the AI to a lane on its first decision. The budget and
+   * the cap are counted from the moment the decision starts running. A decision that times
+   * out, or that the caller stops waiting for when interrupted, is cancelled, and its thread
+   * is quarantined if it does not stop. The decision's CPU time is reported to the AI, see
+   * {@link AI#decisionCpuNanos()}
+   *
+   * @param ai            the deciding AI
+   * @param decision      the decision to be made
+   * @param timeoutMillis the budget of the decision, in milliseconds
+   * @param <T>           the result type
+   * @return the result of the decision
+   * @throws InterruptedException when the waiting thread is interrupted
+   * @throws ExecutionException   when the decision throws
+   * @throws TimeoutException     when the decision does not return in time
+   * @throws RejectedExecutionException when the executor has been shut down
+   */
+  final <T> T call(AI ai, Callable<T> decision, long timeoutMillis)
+      throws InterruptedException, ExecutionException, TimeoutException {
+    int lane = this.claimLane(ai);
+    boolean cpu = cpuBudgets && !virtual && CpuClock.supported();
+    long capMillis = cpu ? timeoutMillis * wallClockFactor : timeoutMillis;
+    Deadline deadline = new Deadline(cpu ? timeoutMillis : -1, capMillis);
+    ai.setDeadline(deadline);
+
+    long start = System.nanoTime();
+    long budget = timeoutMillis * 1_000_000L;
+    long cap = capMillis * 1_000_000L;
+    submitted.incrementAndGet();
+    active.incrementAndGet();
+    Running<T> running = new Running<>(decision, deadline);
+    Future<T> future = null;
+    try {
+      future = this.submit(lane, running);
+      T result;
+      while (true) {
+        if (running.thread == null && !future.isDone()) {
+          // The lane is still busy with earlier decisions, each of which is bounded by its own cap
+          running.awaitStart(capMillis);
+          continue;
+        }
+        long elapsed = running.elapsed();
+        long wait = cap - elapsed;
+        if (wait <= 0) throw new TimeoutException();
+        if (cpu) {
+          // CPU time cannot grow faster than wall-clock time, so the CPU time is only read
+          // once the budget has passed in wall-clock time, and waiting for the CPU time left
+          // never lets the decision overrun its budget by more than a poll
+          long left = budget - elapsed;
+          if (left <= 0) {
+            Thread thread = running.thread;
+            left = budget - (thread == null ? 0 : Math.max(0, deadline.cpuNanos(thread)));
+            if (left <= 0) throw new TimeoutException();
+            left = Math.max(left, POLL_NANOS);
+          }
+          wait = Math.min(wait, left);
+        }
+        try {
+          result = future.get(wait, TimeUnit.NANOSECONDS);
+          break;
+        } catch (TimeoutException ignored) {}
+      }
+      completed.incrementAndGet();
+      this.report(ai, running.cpu, cpu, running);
+      return result;
+    } catch (TimeoutException e) {
+      timedOut.incrementAndGet();
+      this.abandon(ai, lane, running, future, cpu);
+      throw e;
+    } catch (InterruptedException e) {
+      // Nobody waits for the decision any longer, so it is stopped as on a timeout
+      this.abandon(ai, lane, running, future, cpu);
+      throw e;
+    } catch (ExecutionException e) {
+      failed.incrementAndGet();
+      this.report(ai, running.cpu, cpu, running);
+      throw e;
+    } catch (RejectedExecutionException e) {
+      failed.incrementAndGet();
+      this.report(ai, -1, cpu, running);
+      throw e;
+    } finally {
+      pending.decrementAndGet(lane);
+      active.decrementAndGet();
+      waitNanos.addAndGet(System.nanoTime() - start);
+    }
+  }
+
+  /**
+   * Submits a decision to the specified lane. A lane replaced while submitting is retried
+   * with its fresh thread
+   *
+   * @param lane     the lane index
+   * @param decision the decision
+   * @param <T>      the result type
+   * @return the future result of the decision
+   * @throws RejectedExecutionException when the executor has been shut down
+   */
+  private <T> Future<T> submit(int lane, Running<T> decision) {
+    while (true) {
+      ExecutorService executor = lanes.get(lane);
+      try {
+        return executor.submit(decision);
+      } catch (RejectedExecutionException e) {
+        if (lanes.get(lane) == executor) throw e;
+      }
+    }
+  }
+
+  /**
+   * Cancels a decision nobody waits for any longer, and quarantines its thread if it does
+   * not stop within {@link DecisionExecutor#CANCEL_GRACE_MILLIS}
+   *
+   * @param ai        the deciding AI
+   * @param lane      the lane running the decision
+   * @param running   the decision
+   * @param future    the future result of the decision
+   * @param cpuBudget <code>true</code> if the budget is CPU time
+   */
+  private void abandon(AI ai, int lane, Running<?> running, Future<?> future, boolean cpuBudget) {
+    Thread thread = running.thread;
+    this.report(ai, thread == null ? -1 : running.deadline.cpuNanos(thread), cpuBudget, running);
+    running.deadline.cancel();
+    future.cancel(true);
+    // The grace period is waited out even when interrupted, and the interrupt is kept for later
+    long end = System.nanoTime() + CANCEL_GRACE_MILLIS * 1_000_000L;
+    boolean interrupted = false;
+    boolean stopped;
+    while (true) {
+      try {
+        stopped = running.await(Math.max(0, (end - System.nanoTime()) / 1_000_000L));
+        break;
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) Thread.currentThread().interrupt();
+    if (stopped) cancelled.incrementAndGet();
+    else this.quarantine(ai, lane, running.thread);
+  }
+
+  /**
+   * Picks the lane of the next decision of the specified AI, binding the AI to a lane on its
+   * first decision. The AI's own lane is preferred, then any idle lane. An AI moved to the
+   * quarantine lane always decides there
+   *
+   * @param ai the deciding AI
+   * @return the lane index
+   */
+  private int claimLane(AI ai) {
+    if (virtual) {
+      ai.setLane(0);
+      pending.incrementAndGet(0);
+      return 0;
+    }
+    if (ai.lane() < 0) ai.setLane(Math.floorMod(nextLane.getAndIncrement(), size));
+    int own = ai.lane();
+    if (own < size && pending.compareAndSet(own, 0, 1)) return own;
+    for (int i = 1; own < size && i < size; i++) {
+      int lane = (own + i) % size;
+      if (pending.compareAndSet(lane, 0, 1)) return lane;
+    }
+    pending.incrementAndGet(own);
+    return own;
+  }
+
+  /**
+   * Reports the CPU time of a decision to its AI and to the statistics, along with the time
+   * charged for it, which is its CPU time under a CPU time budget and its wall-clock running
+   * time otherwise
+   *
+   * @param ai        the deciding AI
+   * @param cpu       the CPU time in nanoseconds, or <code>-1</code> if unknown
+   * @param cpuBudget <code>true</code> if the budget is CPU time
+   * @param running   the decision
+   */
+  private void report(AI ai, long cpu, boolean cpuBudget, Running<?> running) {
+    ai.setDecisionCpuNanos(cpu);
+    ai.setDecisionNanos(cpuBudget && cpu >= 0 ? cpu : running.elapsed());
+    if (cpu < 0) return;
+    measured.incrementAndGet();
+    cpuNanos.addAndGet(cpu);
+  }
+
+  /**
+   * Quarantines the thread of a decision that ignored its cancellation. The thread's lane
+   * is given a fresh thread, and the AI is moved to the quarantine lane
+   *
+   * @param ai     the deciding AI
+   * @param lane   the lane running the decision
+   * @param thread the thread running the decision
+   */
+  private void quarantine(AI ai, int lane, Thread thread) {
+    quarantine.add(ai, thread);
+    if (virtual) return;
+    // The lane's only thread is lost to the decision, which is left to finish on its own,
+    // and the decisions queued behind it move to the fresh thread
+    ExecutorService fresh = newLane(lane);
+    List<Runnable> queued = lanes.getAndSet(lane, fresh).shutdownNow();
+    for (Runnable task : queued) fresh.execute(task);
+    ai.setLane(size);
+  }
+
+  /**
+   * Stops the lanes once their pending decisions are made. The shared executor cannot be stopped
+   */
+  public final void shutdown() {
+    if (this == shared) return;
+    for (int i = 0; i < lanes.length(); i++) lanes.get(i).shutdown();
+  }
+
+  /**
+   * Sets whether decision budgets are counted in CPU time, when it can be measured
+   *
+   * @param cpuBudgets <code>true</code> for CPU time, or <code>false</code> for wall-clock time
+   */
+  public final void setCpuBudgets(boolean cpuBudgets) { this.cpuBudgets = cpuBudgets; }
+
+  /**
+   * Checks if decision budgets are counted in CPU time
+   *
+   * @return <code>true</code> if the budgets are CPU time, whenever it can be measured
+   */
+  public final boolean cpuBudgets() { return cpuBudgets; }
+
+  /**
+   * Sets the wall-clock cap of a decision with a CPU time budget
+   *
+   * @param factor the cap, as a multiple of the budget
+   */
+  public final void setWallClockFactor(long factor) {
+    if (factor < 1) throw new IllegalArgumentException("The wall-clock cap cannot be below the budget");
+    this.wallClockFactor = factor;
+  }
+
+  /**
+   * Returns the wall-clock cap of a decision with a CPU time budget
+   *
+   * @return the cap, as a multiple of the budget
+   */
+  public final long wallClockFactor() { return wallClockFactor; }
+
+  /**
+   * Returns the threads left running by cancelled decisions
+   *
+   * @return the quarantine
+   */
+  public final Quarantine quarantine() { return quarantine; }
+
+  /**
+   * Checks if the decisions run on virtual threads
+   *
+   * @return <code>true</code> for virtual threads
+   */
+  public final boolean isVirtual() { return virtual; }
+
+  /**
+   * Returns the number of lanes
+   *
+   * @return the number of lanes, not counting the quarantine lane, which is <code>1</code> for
+   * virtual threads
+   */
+  public final int lanes() { return size; }
+
+  /**
+   * Returns the number of threads created by the executor
+   *
+   * @return the number of threads
+   */
+  public final long threadsCreated() { return threadsCreated.get(); }
+
+  /**
+   * Returns the number of submitted decisions
+   *
+   * @return the number of decisions
+   */
+  public final long submitted() { return submitted.get(); }
+
+  /**
+   * Returns the number of decisions that returned in time
+   *
+   * @return the number of decisions
+   */
+  public final long completed() { return completed.get(); }
+
+  /**
+   * Returns the number of decisions that timed out
+   *
+   * @return the number of decisions
+   */
+  public final long timedOut() { return timedOut.get(); }
+
+  /**
+   * Returns the number of timed-out decisions that stopped once cancelled
+   *
+   * @return the number of decisions
+   */
+  public final long cancelled() { return cancelled.get(); }
+
+  /**
+   * Returns the number of decisions that threw
+   *
+   * @return the number of decisions
+   */
+  public final long failed() { return failed.get(); }
+
+  /**
+   * Returns the number of decisions being waited for
+   *
+   * @return the number of decisions
+   */
+  public final int active() { return active.get(); }
+
+  /**
+   * Returns the mean CPU time of the measured decisions
+   *
+   * @return the mean CPU time, in microseconds
+   */
+  public final double meanCpuMicros() {
+    long count = measured.get();
+    return count == 0 ? 0 : cpuNanos.get() / 1e3 / count;
+  }
+
+  /**
+   * Returns the mean time waited for a decision
+   *
+   * @return the mean waiting time, in microseconds
+   */
+  public final double meanWaitMicros() {
+    long count = submitted.get() - active.get();
+    return count <= 0 ? 0 : waitNanos.get() / 1e3 / count;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("executor=%s lanes=%d threads=%d submitted=%d completed=%d timeouts=%d cancelled=%d "
+                         + "quarantined=%d leaked_cpu=%.1fms failures=%d budget=%s cpu=%.1fus wait=%.1fus",
+                         virtual ? "virtual" : "platform", size, threadsCreated(), submitted(), completed(),
+                         timedOut(), cancelled(), quarantine.size(), quarantine.leakedCpuNanos() / 1e6,
+                         failed(), cpuBudgets && !virtual && CpuClock.supported() ? "cpu" : "wall",
+                         meanCpuMicros(), meanWaitMicros());
+  }
+}
@@ -0,0 +1,191 @@
+package ai;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * The {@link Quarantine} class keeps track of the threads left running by cancelled decisions.
+ * <p>
+ * A decision that ignores both its {@link Deadline} and the interrupt after its timeout
+ * cannot be stopped safely, so its thread is given up: it is registered here, lowered
+ * to the minimum priority, and its lane is replaced by a fresh thread. From then on, the
+ * offending AI decides on a quarantine lane whose threads belong to a separate thread
+ * group capped at the minimum priority, so it no longer shares a thread with well-behaved AIs.
+ * </p>
+ * <p>
+ * The CPU time a quarantined thread spends after its timeout is accounted to its AI. The
+ * times are sampled whenever they are read or a thread is added, so the CPU a thread spends
+ * between its last sample and its end is not accounted. A thread found dead is dropped after
+ * its last sample, and its leaked time is kept in its AI's total.
+ * </p>
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public final class Quarantine {
+  /**
+   * The {@link Entry} class represents a quarantined thread
+   */
+  private static final class Entry {
+    /** The AI whose decision leaked */
+    private final AI ai;
+    /** The leaked thread */
+    private final Thread thread;
+    /** The thread's CPU time when its decision timed out, in nanoseconds */
+    private final long cpuAtTimeout;
+    /** The thread's CPU time at the last sample, in nanoseconds */
+    private long cpu;
+
+    /**
+     * Creates an {@link Entry} object for the specified leaked thread
+     *
+     * @param ai     the AI whose decision leaked
+     * @param thread the leaked thread
+     */
+    private Entry(AI ai, Thread thread) {
+      this.ai = ai;
+      this.thread = thread;
+      this.cpuAtTimeout = cpuTime(thread);
+      this.cpu = cpuAtTimeout;
+    }
+
+    /**
+     * Samples the thread's CPU time, while it is alive
+     */
+    private void sample() {
+      if (thread.isAlive()) cpu = Math.max(cpu, cpuTime(thread));
+    }
+
+    /**
+     * Returns the CPU time spent after the timeout, as of the last sample
+     *
+     * @return the leaked CPU time, in nanoseconds
+     */
+    private long leaked() { return cpu - cpuAtTimeout; }
+  }
+
+  /** The group of the quarantine lanes' threads */
+  private final ThreadGroup group;
+  /** The quarantined threads still alive at their last sample */
+  private final List<Entry> entries = new ArrayList<>();
+  /** The CPU time leaked by the dropped threads of each AI, in nanoseconds */
+  private final Map<AI, Long> retired = new WeakHashMap<>();
+  /** The CPU time leaked by all dropped threads, in nanoseconds */
+  private long retiredCpu;
+  /** The number of threads ever quarantined */
+  private int quarantined;
+
+  /**
+   * Creates an empty {@link Quarantine} object
+   */
+  Quarantine() {
+    this.group = new ThreadGroup("ai-quarantine");
+    this.group.setMaxPriority(Thread.MIN_PRIORITY);
+  }
+
+  /**
+   * Returns the group of the quarantine lanes' threads
+   *
+   * @return the thread group
+   */
+  final ThreadGroup group() { return group; }
+
+  /**
+   * Quarantines the thread of a decision that could not be cancelled
+   *
+   * @param ai     the AI whose decision leaked
+   * @param thread the thread running the decision
+   */
+  final synchronized void add(AI ai, Thread thread) {
+    this.prune();
+    entries.add(new Entry(ai, thread));
+    quarantined++;
+    try {
+      thread.setPriority(Thread.MIN_PRIORITY);
+    } catch (SecurityException ignored) {}
+  }
+
+  /**
+   * Returns the number of threads ever quarantined
+   *
+   * @return the number of threads
+   */
+  public final synchronized int size() { return quarantined; }
+
+  /**
+   * Returns the number of quarantined threads still running
+   *
+   * @return the number of threads
+   */
+  public final synchronized int alive() {
+    this.prune();
+    return entries.size();
+  }
+
+  /**
+   * Checks if the specified AI has leaked a decision
+   *
+   * @param ai the AI
+   * @return <code>true</code> if one of its threads is quarantined
+   */
+  public final synchronized boolean contains(AI ai) {
+    if (retired.containsKey(ai)) return true;
+    for (Entry entry : entries) {
+      if (entry.ai == ai) return true;
+    }
+    return false;
+  }
+
+  /**
+   * Returns the CPU time the specified AI's quarantined threads spent after their timeout
+   *
+   * @param ai the AI
+   * @return the leaked CPU time, in nanoseconds
+   */
+  public final synchronized long leakedCpuNanos(AI ai) {
+    this.prune();
+    long leaked = retired.getOrDefault(ai, 0L);
+    for (Entry entry : entries) {
+      if (entry.ai == ai) leaked += entry.leaked();
+    }
+    return leaked;
+  }
+
+  /**
+   * Returns the CPU time all quarantined threads spent after their timeout
+   *
+   * @return the leaked CPU time, in nanoseconds
+   */
+  public final synchronized long leakedCpuNanos() {
+    this.prune();
+    long leaked = retiredCpu;
+    for (Entry entry : entries) leaked += entry.leaked();
+    return leaked;
+  }
+
+  /**
+   * Samples every quarantined thread, and drops the threads found dead, keeping their leaked time
+   */
+  private void prune() {
+    Iterator<Entry> iterator = entries.iterator();
+    while (iterator.hasNext()) {
+      Entry entry = iterator.next();
+      entry.sample();
+      if (entry.thread.isAlive()) continue;
+      retired.merge(entry.ai, entry.leaked(), Long::sum);
+      retiredCpu += entry.leaked();
+      iterator.remove();
+    }
+  }
+
+  /**
+   * Returns the CPU time of the specified thread
+   *
+   * @param thread the thread
+   * @return the CPU time in nanoseconds, or <code>0</code> if it cannot be measured
+   */
+  private static long cpuTime(Thread thread) {
+    return Math.max(0, CpuClock.of(thread));
+  }
+}
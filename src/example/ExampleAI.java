@@ -3,11 +3,13 @@ package example;
 import ai.AI;
 import model.*;
 import model.cards.Card;
+import model.cards.OrientedPath;
 import model.cards.PathCard;
 import model.cards.PlayerActionCard;
 
 import java.util.ArrayList;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
 
 public class ExampleAI extends AI {
@@ -31,6 +33,17 @@ public class ExampleAI extends AI {
 
     // knownGoals() is used to get opened goals, whether by a map card, or path-reachable
     Map<Board.GoalPosition, GoalType> knownGoals = knownGoals();
+
+    // board() is used to read the game board without copying any of its cells
+    ReadOnlyBoard board = board();
+
+    // random() is the random source to use, reseeded from the game's seed every round,
+    // so a replayed session replays the same moves
+    Random random = random();
+
+    // searchState() is used to get a copy of the round to search on, with
+    // GameLogicController.apply() and undo(). Hidden cards, roles, and goals are dealt at random
+    GameState search = searchState(random);
   }
 
   @Override
@@ -57,8 +70,9 @@ public class ExampleAI extends AI {
       // Example of placing a path card
       if (card.type() == Card.Type.PATHWAY) {
         PathCard pCard = ((PathCard) card);
-        pCard.rotate();
-        Set<Position> placeable = game.board().getPlaceable(pCard);
+        // OrientedPath evaluates a rotation without rotating the card in hand
+        OrientedPath rotated = OrientedPath.of(pCard.pathType(), true);
+        Set<Position> placeable = game.board().getPlaceable(rotated);
         Position target = placeable.toArray(new Position[0])[0];
         move = Move.NewPathMove(myIndex, cardIndex, target.x, target.y, true);
         break;
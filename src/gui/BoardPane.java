@@ -16,8 +16,10 @@ import javafx.scene.paint.Color;
 import javafx.scene.shape.Rectangle;
 import javafx.util.Duration;
 import model.Board;
+import model.GameBoard;
 import model.GoalType;
 import model.Position;
+import model.ReadOnlyBoard;
 import model.cards.Card;
 import model.cards.PathCard;
 
@@ -37,6 +39,8 @@ public class BoardPane extends Pane {
   private CardPane middleGoal;
   private CardPane bottomGoal;
 
+  private int overlayX = -1, overlayY = -1;
+  private boolean overlayRotated;
   private double lastX, lastY;
   private boolean dragged;
   boolean sabotaged = false;
@@ -86,9 +90,15 @@ public class BoardPane extends Pane {
   }
 
   private void testCard(Card card, int x, int y, boolean rotated) {
+    // The board cannot change while a card is being tested, so the overlay is still valid
+    if (cardOverlay != null && x == overlayX && y == overlayY && rotated == overlayRotated) return;
     getChildren().remove(cardOverlay);
-    Board board = controller.game().board();
+    cardOverlay = null;
+    ReadOnlyBoard board = controller.game().board();
     if (!board.isInBoard(x, y)) return;
+    overlayX = x;
+    overlayY = y;
+    overlayRotated = rotated;
     cardOverlay = new CardPane(card);
     cardOverlay.setLayoutY(y * CardPane.HEIGHT);
     cardOverlay.setLayoutX(x * CardPane.WIDTH);
@@ -102,14 +112,11 @@ public class BoardPane extends Pane {
     Blend color;
     boolean valid = true;
     if (card instanceof PathCard) {
-      valid = !this.sabotaged && board.isCardPlaceableAt((PathCard) card, x, y);
+      valid = !this.sabotaged && board.isCardPlaceableAt(((PathCard) card).pathType(), rotated, x, y);
     } else if (card.type() == Card.Type.ROCKFALL) {
       valid = board.isDestroyable(x, y);
     } else if (card.type() == Card.Type.MAP) {
-      Position p = new Position(x, y);
-      valid = p.equals(board.topGoalPosition())
-              || p.equals(board.middleGoalPosition())
-              || p.equals(board.bottomGoalPosition());
+      valid = isGoalAt(board, x, y);
     }
 
     color = new Blend(
@@ -124,8 +131,17 @@ public class BoardPane extends Pane {
     getChildren().add(cardOverlay);
   }
 
+  private static boolean isGoalAt(ReadOnlyBoard board, int x, int y) {
+    Position top = board.topGoalPosition();
+    Position middle = board.middleGoalPosition();
+    Position bottom = board.bottomGoalPosition();
+    return (x == top.x && y == top.y)
+           || (x == middle.x && y == middle.y)
+           || (x == bottom.x && y == bottom.y);
+  }
+
   void highlightAvailable(Card card) {
-    Board board = controller.game().board();
+    GameBoard board = controller.game().board();
     selected = card;
     Set<Position> available = new HashSet<>();
     if (card instanceof PathCard && !this.sabotaged) {
@@ -246,7 +262,7 @@ public class BoardPane extends Pane {
   }
 
   private void handlePlace(int x, int y) {
-    Board board = controller.game().board();
+    GameBoard board = controller.game().board();
     System.out.println("PLACE: " + selected.type());
     System.out.println(board.getDestroyable());
     if (selected instanceof PathCard && board.isCardPlaceableAt((PathCard) selected, x, y)) {
@@ -323,7 +339,7 @@ public class BoardPane extends Pane {
   }
 
   void rotateOverlay() {
-    cardOverlay.rotate();
+    if (cardOverlay != null) cardOverlay.rotate();
   }
 
   void initialize() {
@@ -0,0 +1,362 @@
+package main;
+
+import ai.AI;
+import ai.DecisionExecutor;
+import model.Board;
+import model.GameException;
+import model.GameLogicController;
+import model.GameObserver;
+import model.GameState;
+import model.Player;
+import model.TimeControl;
+import model.TurnScheduler;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The {@link Simulator} class runs rounds between {@link AI} players without any display.
+ * <p>
+ * Every AI class must have a public constructor taking the player's name. The rounds are
+ * driven turn by turn by a {@link TurnScheduler}, with the same game flow as the GUI,
+ * but without waiting for any click.
+ * </p>
+ * <p>Usage:</p>
+ * <pre><code>
+ * java main.Simulator [-n games] [-s seed] [-b widthxheight] [--sparse] [-t timeout | -c initial+increment | --fast] [--wall] [--virtual] [-v] ai.ClassA ...
+ * </code></pre>
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public class Simulator {
+  /** The turn limit of a single round, after which the round is counted as unfinished */
+  public static final int MAX_TURNS = 1000;
+
+  /** The AI classes, one per player */
+  private final List<Class<? extends AI>> classes;
+  /** The seed of the session */
+  private long seed = ThreadLocalRandom.current().nextLong();
+  /** The time an AI is given to make a decision, in milliseconds */
+  private long decisionTimeout = GameLogicController.DEFAULT_DECISION_TIMEOUT;
+  /** The time control of the decisions, or <code>null</code> for the decision timeout */
+  private TimeControl timeControl;
+  /** The width of the board */
+  private int boardWidth = Board.DEFAULT_WIDTH;
+  /** The height of the board */
+  private int boardHeight = Board.DEFAULT_HEIGHT;
+  /** Marks whether the rounds are played on a growable board */
+  private boolean sparseBoard;
+  /** Marks whether the players' output is discarded */
+  private boolean quiet = true;
+  /** The executor running the decisions, or <code>null</code> for the shared one */
+  private DecisionExecutor executor;
+
+  /**
+   * The {@link Result} class represents the outcome of a simulation
+   */
+  public static final class Result {
+    /** The number of played rounds */
+    private int games;
+    /** The number of rounds won by the gold miners */
+    private int goldMinerWins;
+    /** The number of rounds won by the saboteurs */
+    private int saboteurWins;
+    /** The number of rounds stopped at the turn limit */
+    private int unfinished;
+    /** The number of played turns */
+    private long turns;
+    /** The elapsed time, in nanoseconds */
+    private long nanos;
+
+    /**
+     * Returns the number of played rounds
+     *
+     * @return the number of rounds
+     */
+    public final int games() { return games; }
+
+    /**
+     * Returns the number of rounds won by the gold miners
+     *
+     * @return the number of rounds
+     */
+    public final int goldMinerWins() { return goldMinerWins; }
+
+    /**
+     * Returns the number of rounds won by the saboteurs
+     *
+     * @return the number of rounds
+     */
+    public final int saboteurWins() { return saboteurWins; }
+
+    /**
+     * Returns the number of rounds stopped at the turn limit
+     *
+     * @return the number of rounds
+     */
+    public final int unfinished() { return unfinished; }
+
+    /**
+     * Returns the number of played turns
+     *
+     * @return the number of turns
+     */
+    public final long turns() { return turns; }
+
+    /**
+     * Returns the elapsed time
+     *
+     * @return the elapsed time, in seconds
+     */
+    public final double seconds() { return nanos / 1e9; }
+
+    /**
+     * Returns the throughput of the simulation
+     *
+     * @return the number of rounds per second
+     */
+    public final double gamesPerSecond() { return nanos == 0 ? 0 : games / seconds(); }
+
+    @Override
+    public String toString() {
+      return String.format("games=%d gold_miner=%d saboteur=%d unfinished=%d turns/game=%.1f time=%.2fs games/s=%.1f",
+                           games, goldMinerWins, saboteurWins, unfinished,
+                           games == 0 ? 0.0 : (double) turns / games, seconds(), gamesPerSecond());
+    }
+  }
+
+  /**
+   * Creates a {@link Simulator} object for the specified AI classes
+   *
+   * @param classes the AI classes, one per player
+   */
+  public Simulator(List<Class<? extends AI>> classes) {
+    this.classes = new ArrayList<>(classes);
+  }
+
+  /**
+   * Sets the seed of the session, see {@link GameLogicController#setSeed(long)}
+   *
+   * @param seed the seed
+   */
+  public final void setSeed(long seed) { this.seed = seed; }
+
+  /**
+   * Returns the seed of the session
+   *
+   * @return the seed
+   */
+  public final long seed() { return seed; }
+
+  /**
+   * Sets the time an AI is given to make a decision, see
+   * {@link GameLogicController#setDecisionTimeout(long)}
+   *
+   * @param millis the timeout in milliseconds, or <code>0</code> for the fast mode
+   */
+  public final void setDecisionTimeout(long millis) { this.decisionTimeout = millis; }
+
+  /**
+   * Sets the time control of the decisions, see {@link GameLogicController#setTimeControl(TimeControl)}
+   *
+   * @param timeControl the time control, or <code>null</code> to use the decision timeout
+   */
+  public final void setTimeControl(TimeControl timeControl) { this.timeControl = timeControl; }
+
+  /**
+   * Sets the dimension of the board, see {@link GameLogicController#setBoardSize(int, int)}
+   *
+   * @param width  the board width
+   * @param height the board height
+   */
+  public final void setBoardSize(int width, int height) {
+    this.boardWidth = width;
+    this.boardHeight = height;
+  }
+
+  /**
+   * Sets whether the rounds are played on a growable board, see {@link GameLogicController#setSparseBoard(boolean)}
+   *
+   * @param sparse <code>true</code> to play on a sparse board
+   */
+  public final void setSparseBoard(boolean sparse) { this.sparseBoard = sparse; }
+
+  /**
+   * Sets the fast mode, in which trusted AIs decide on the game's thread without any timeout
+   *
+   * @param fast <code>true</code> to enable the fast mode
+   */
+  public final void setFast(boolean fast) {
+    this.decisionTimeout = fast ? 0 : GameLogicController.DEFAULT_DECISION_TIMEOUT;
+  }
+
+  /**
+   * Sets whether the players' output is discarded while simulating
+   *
+   * @param quiet <code>true</code> to discard the output
+   */
+  public final void setQuiet(boolean quiet) { this.quiet = quiet; }
+
+  /**
+   * Sets the executor running the AIs' decisions, see {@link AI#setExecutor(DecisionExecutor)}
+   *
+   * @param executor the executor, or <code>null</code> for {@link DecisionExecutor#shared()}
+   */
+  public final void setExecutor(DecisionExecutor executor) { this.executor = executor; }
+
+  /**
+   * Returns the executor running the AIs' decisions
+   *
+   * @return the executor
+   */
+  public final DecisionExecutor executor() {
+    return executor != null ? executor : DecisionExecutor.shared();
+  }
+
+  /**
+   * Plays the specified number of rounds in a single session
+   *
+   * @param games the number of rounds
+   * @return the outcome of the simulation
+   * @throws GameException               when the number of players or the board size is invalid
+   * @throws ReflectiveOperationException when an AI class cannot be instantiated
+   */
+  public final Result run(int games) throws GameException, ReflectiveOperationException {
+    Player[] players = new Player[classes.size()];
+    for (int i = 0; i < players.length; i++) {
+      Class<? extends AI> type = classes.get(i);
+      AI ai = type.getConstructor(String.class).newInstance(type.getSimpleName() + " " + (i + 1));
+      ai.setExecutor(executor);
+      players[i] = ai;
+    }
+    GameState state = new GameState();
+    GameLogicController game = new GameLogicController(state, players);
+    game.setSeed(seed);
+    game.setDecisionTimeout(decisionTimeout);
+    game.setTimeControl(timeControl);
+    game.setBoardSize(boardWidth, boardHeight);
+    game.setSparseBoard(sparseBoard);
+    TurnScheduler scheduler = new TurnScheduler(game);
+
+    Result result = new Result();
+    game.addObserver(new GameObserver() {
+      @Override
+      protected void onGameFinished(Player.Role role, int lastPlayer) {
+        if (role == Player.Role.GOLD_MINER) result.goldMinerWins++;
+        else result.saboteurWins++;
+      }
+    });
+
+    PrintStream out = System.out;
+    if (quiet) System.setOut(new PrintStream(new OutputStream() {
+      @Override
+      public void write(int b) {}
+
+      @Override
+      public void write(byte[] b, int off, int len) {}
+    }));
+    long start = System.nanoTime();
+    try {
+      for (int i = 0; i < games; i++) {
+        scheduler.startRound();
+        if (!scheduler.run(MAX_TURNS)) {
+          // Stop the round so that the next one can be initialized
+          state.setStarted(false);
+          state.setFinished(true);
+          result.unfinished++;
+        }
+        result.games++;
+        result.turns += scheduler.turns();
+      }
+    } finally {
+      result.nanos = System.nanoTime() - start;
+      System.setOut(out);
+    }
+    return result;
+  }
+
+  /**
+   * Runs a simulation from the command line
+   *
+   * @param args the options, followed by the AI class names
+   * @throws Exception when the simulation fails
+   */
+  public static void main(String[] args) throws Exception {
+    int games = 1000;
+    Long seed = null;
+    long timeout = GameLogicController.DEFAULT_DECISION_TIMEOUT;
+    TimeControl timeControl = null;
+    int width = Board.DEFAULT_WIDTH;
+    int height = Board.DEFAULT_HEIGHT;
+    boolean sparse = false;
+    boolean quiet = true;
+    boolean virtual = false;
+    boolean wall = false;
+    List<Class<? extends AI>> classes = new ArrayList<>();
+    for (int i = 0; i < args.length; i++) {
+      switch (args[i]) {
+        case "-n":
+          games = Integer.parseInt(args[++i]);
+          break;
+        case "-s":
+          seed = Long.parseLong(args[++i]);
+          break;
+        case "-b":
+          String[] size = args[++i].split("x");
+          width = Integer.parseInt(size[0]);
+          height = Integer.parseInt(size[1]);
+          break;
+        case "--sparse":
+          sparse = true;
+          break;
+        case "-t":
+          timeout = Long.parseLong(args[++i]);
+          break;
+        case "-c":
+          timeControl = TimeControl.parse(args[++i]);
+          break;
+        case "--fast":
+          timeout = 0;
+          break;
+        case "--virtual":
+          virtual = true;
+          break;
+        case "--wall":
+          wall = true;
+          break;
+        case "-v":
+          quiet = false;
+          break;
+        default:
+          classes.add(Class.forName(args[i]).asSubclass(AI.class));
+      }
+    }
+    if (classes.isEmpty()) {
+      System.err.println("Usage: java main.Simulator [-n games] [-s seed] [-b widthxheight] [--sparse] [-t timeout | -c initial+increment | --fast] [--wall] [--virtual] [-v] <AI classes...>");
+      System.exit(1);
+    }
+
+    Simulator simulator = new Simulator(classes);
+    if (seed != null) simulator.setSeed(seed);
+    simulator.setDecisionTimeout(timeout);
+    simulator.setTimeControl(timeControl);
+    simulator.setBoardSize(width, height);
+    simulator.setSparseBoard(sparse);
+    simulator.setQuiet(quiet);
+    if (virtual) {
+      DecisionExecutor executor = DecisionExecutor.virtualThreads();
+      if (executor == null) System.err.println("Virtual threads are not available, using platform threads");
+      simulator.setExecutor(executor);
+    }
+    if (wall) {
+      DecisionExecutor executor = simulator.executor();
+      executor.setCpuBudgets(false);
+      simulator.setExecutor(executor);
+    }
+    Result result = simulator.run(games);
+    System.out.println("seed=" + simulator.seed() + " " + result);
+    if (timeout > 0 || timeControl != null) System.out.println(simulator.executor());
+  }
+}
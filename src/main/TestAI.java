@@ -1,104 +1,71 @@
 package main;
 
 import ai.AI;
-import model.Board;
 import model.Move;
-import model.Player;
-import model.Position;
+import model.MoveBuffer;
+import model.PackedMove;
 import model.cards.Card;
+import model.cards.OrientedPath;
 import model.cards.PathCard;
-import model.cards.PlayerActionCard;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Random;
-import java.util.Set;
+import java.util.Arrays;
 
 public class TestAI extends AI {
+  private final MoveBuffer moves = new MoveBuffer();
+  private final int[] counts = new int[3];
+
   public TestAI(String name) {
     super(name);
   }
 
-  private ArrayList<Move> generatePossiblePaths(int cardIndex, PathCard card) {
-    ArrayList<Move> possibleMoves = new ArrayList<>();
-
-    card.setRotated(false);
-    Set<Position> posNormal = game().board().getPlaceable(card);
-    posNormal.forEach(p -> possibleMoves.add(Move.NewPathMove(index(), cardIndex, p.x, p.y, false)));
-
-    card.setRotated(true);
-    Set<Position> posRotated = game().board().getPlaceable(card);
-    posRotated.forEach(p -> possibleMoves.add(Move.NewPathMove(index(), cardIndex, p.x, p.y, true)));
-
-    System.out.print(card + " => ");
-    System.out.print(posNormal);
-    System.out.println(posRotated);
-    return possibleMoves;
-  }
-
-  private ArrayList<Move> generatePossiblePlayerActions(int cardIndex, PlayerActionCard card) {
-    ArrayList<Move> possibleMoves = new ArrayList<>();
-    int numPlayers = game().numPlayers();
-    for (int i = 0; i < numPlayers; ++i) {
-      if (i == index()) continue;
-      Player p = game().playerAt(i);
-      if (card.type() == Card.Type.REPAIR && p.isRepairable(card.effects())) {
-        possibleMoves.add(Move.NewPlayerActionMove(index(), cardIndex, i));
-      } else if (card.type() == Card.Type.BLOCK && p.isSabotageable(card.effects()[0])) {
-        possibleMoves.add(Move.NewPlayerActionMove(index(), cardIndex, i));
-      }
+  private static int category(int move) {
+    switch (PackedMove.type(move)) {
+      case PLAY_PATH:
+        return 0;
+      case DISCARD:
+        return 2;
+      default:
+        return 1;
     }
-    return possibleMoves;
   }
 
-  private ArrayList<Move> generatePossibleRockfall(int cardIndex) {
-    ArrayList<Move> possibleMoves = new ArrayList<>();
-    Set<Position> positions = game().board().getDestroyable();
-    positions.forEach(p -> possibleMoves.add(Move.NewRockfallMove(index(), cardIndex, p.x, p.y)));
-    return possibleMoves;
+  // Keeps the original policy: never target itself with a player-action card, and count a
+  // symmetric path card in both rotations, as the legal moves only list it once
+  private int weight(int move) {
+    switch (PackedMove.type(move)) {
+      case PLAY_PLAYER:
+        return PackedMove.target(move) == index() ? 0 : 1;
+      case PLAY_PATH:
+        Card card = hand().get(PackedMove.handIndex(move));
+        OrientedPath path = OrientedPath.of(((PathCard) card).pathType(), false);
+        return path.rotate().code() == path.code() ? 2 : 1;
+      default:
+        return 1;
+    }
   }
 
-  private ArrayList<Move> generatePossibleMap(int cardIndex) {
-    ArrayList<Move> possibleMoves = new ArrayList<>();
-    possibleMoves.add(Move.NewMapMove(index(), cardIndex, Board.GoalPosition.TOP));
-    possibleMoves.add(Move.NewMapMove(index(), cardIndex, Board.GoalPosition.MIDDLE));
-    possibleMoves.add(Move.NewMapMove(index(), cardIndex, Board.GoalPosition.BOTTOM));
-    return possibleMoves;
+  private Move pick(int category, int count) {
+    int n = random().nextInt(count);
+    for (int i = 0; i < moves.size(); ++i) {
+      if (category(moves.get(i)) != category) continue;
+      n -= weight(moves.get(i));
+      if (n < 0) return moves.toMove(i, index());
+    }
+    return null;
   }
 
   @Override
   protected Move makeDecision() {
-    ArrayList<Move> pathMoves = new ArrayList<>();
-    ArrayList<Move> playMoves = new ArrayList<>();
-    ArrayList<Move> discardMoves = new ArrayList<>();
-    int len = hand().size();
-    for (int i = 0; i < len; ++i) {
-      Card c = hand().get(i);
-      if (c instanceof PathCard && !isSabotaged()) {
-        pathMoves.addAll(generatePossiblePaths(i, (PathCard) c));
-      }
-      if (c instanceof PlayerActionCard) {
-        playMoves.addAll(generatePossiblePlayerActions(i, (PlayerActionCard) c));
-      }
-      if (c.type() == Card.Type.MAP) {
-        playMoves.addAll(generatePossibleMap(i));
-      }
-      if (c.type() == Card.Type.ROCKFALL) {
-        playMoves.addAll(generatePossibleRockfall(i));
-      }
-      discardMoves.add(Move.NewDiscardMove(index(), i));
-    }
-//    System.out.println(hand());
-//    System.out.println(pathMoves);
-    if (new Random().nextInt(10) < 8 && !pathMoves.isEmpty()) {
-      Collections.shuffle(pathMoves);
-      return pathMoves.get(0);
-    } else if (new Random().nextInt(10) < 7 && !playMoves.isEmpty()) {
-      Collections.shuffle(playMoves);
-      return playMoves.get(0);
+    Arrays.fill(counts, 0);
+    int len = game().legalMoves(moves);
+    for (int i = 0; i < len; ++i) counts[category(moves.get(i))] += weight(moves.get(i));
+
+    if (random().nextInt(10) < 8 && counts[0] > 0) {
+      return pick(0, counts[0]);
+    } else if (random().nextInt(10) < 7 && counts[1] > 0) {
+      return pick(1, counts[1]);
     } else {
-      Collections.shuffle(discardMoves);
-      return discardMoves.get(0);
+      return pick(2, counts[2]);
     }
   }
 }
@@ -0,0 +1,521 @@
+package model;
+
+import model.cards.PathCard;
+
+import java.util.Arrays;
+
+/**
+ * The {@link BitBoard} class is the bitboard engine behind {@link Board}.
+ * <p>
+ * Every cell is identified by its packed index <code>x * height + y</code>. For each
+ * direction (top, right, bottom, left) and each {@link Cell.Side}, the engine keeps a
+ * bit plane marking the cells whose side in that direction has that value. The default
+ * 9 &times; 5 board fits in a single <code>long</code> per plane, in which case every
+ * operation is done on primitive words without any allocation.
+ * </p>
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+final class BitBoard {
+  /** The top direction */
+  static final int TOP = Grid.TOP;
+  /** The right direction */
+  static final int RIGHT = Grid.RIGHT;
+  /** The bottom direction */
+  static final int BOTTOM = Grid.BOTTOM;
+  /** The left direction */
+  static final int LEFT = Grid.LEFT;
+
+  /** Cached {@link Cell.Side} values, indexed by ordinal */
+  private static final Cell.Side[] SIDES = Cell.Side.values();
+  /** Cached {@link PathCard.Side} values, indexed by ordinal */
+  private static final PathCard.Side[] CARD_SIDES = PathCard.Side.values();
+
+  /** The width of the board */
+  private final int width;
+  /** The height of the board */
+  private final int height;
+  /** The number of cells in the board */
+  private final int size;
+  /** The number of words used by a single plane */
+  private final int words;
+  /** Bit planes, indexed by <code>side.ordinal() * 4 + direction</code> */
+  private final long[][] planes;
+  /** Marks every cell inside the board */
+  private final long[] boardMask;
+  /** Marks the cells that have a neighbour in each direction, indexed by direction */
+  private final long[][] hasNeighbour;
+  /** The packed index offset of the neighbour in each direction */
+  private final int[] offsets;
+  /** The neighbour signature of every cell, see {@link SideCompatibility} */
+  private final byte[] signatures;
+  /** The live path planes, indexed by direction */
+  private final long[][] paths;
+  /** Scratch mask of the sides facing each cell */
+  private final long[] facing;
+  /** Scratch masks of the cells rejecting a card side, indexed by <code>direction * 3 + card side</code> */
+  private final long[][] rejecting;
+  /** The placement masks, indexed by orientation number, refilled by every computation */
+  private final long[][] placements;
+  /** Scratch mask of the next flood-fill step */
+  private final long[] step;
+  /** Scratch path planes of a hypothetical placement, indexed by direction */
+  private final long[][] whatIf;
+  /** Scratch copies of the path planes including a hypothetical card, indexed by direction */
+  private final long[][] whatIfPlanes;
+  /** Scratch masks of the cells already visited by a breadth-first search */
+  private final long[] visited;
+  /** Scratch masks of the current breadth-first search layer */
+  private final long[] layer;
+  /** Scratch masks of the next breadth-first search layer */
+  private final long[] next;
+
+  /**
+   * Creates an empty {@link BitBoard} of the specified dimension
+   *
+   * @param width  the width of the board
+   * @param height the height of the board
+   */
+  BitBoard(int width, int height) {
+    this.width = width;
+    this.height = height;
+    this.size = width * height;
+    this.words = Math.max(1, (size + 63) >>> 6);
+    this.planes = new long[SIDES.length * 4][words];
+    this.boardMask = new long[words];
+    this.hasNeighbour = new long[4][words];
+    this.offsets = new int[]{-1, height, 1, -height};
+    this.signatures = new byte[size];
+    Arrays.fill(signatures, (byte) SideCompatibility.EMPTY_SIGNATURE);
+    this.paths = new long[4][];
+    for (int dir = 0; dir < 4; dir++) paths[dir] = plane(Cell.Side.PATH, dir);
+    this.facing = new long[words];
+    this.rejecting = new long[4 * CARD_SIDES.length][words];
+    this.placements = new long[SideCompatibility.ORIENTATIONS][words];
+    this.step = new long[words];
+    this.whatIf = new long[4][];
+    this.whatIfPlanes = new long[4][words];
+    this.visited = new long[words];
+    this.layer = new long[words];
+    this.next = new long[words];
+
+    for (int x = 0; x < width; x++) {
+      for (int y = 0; y < height; y++) {
+        int i = index(x, y);
+        set(boardMask, i);
+        if (y > 0) set(hasNeighbour[TOP], i);
+        if (x < width - 1) set(hasNeighbour[RIGHT], i);
+        if (y < height - 1) set(hasNeighbour[BOTTOM], i);
+        if (x > 0) set(hasNeighbour[LEFT], i);
+      }
+    }
+    // Every cell starts empty
+    for (int dir = 0; dir < 4; dir++) {
+      System.arraycopy(boardMask, 0, plane(Cell.Side.EMPTY, dir), 0, words);
+    }
+  }
+
+  /**
+   * Returns the packed index of the specified <code>(x, y)</code> position
+   *
+   * @param x the x position
+   * @param y the y position
+   * @return the packed index
+   */
+  int index(int x, int y) { return x * height + y; }
+
+  /**
+   * Returns the number of words used by a single plane
+   *
+   * @return the plane length
+   */
+  int words() { return words; }
+
+  /**
+   * Returns the bit plane of the specified side value and direction
+   *
+   * @param side the side value
+   * @param dir  the direction
+   * @return the live plane
+   */
+  long[] plane(Cell.Side side, int dir) { return planes[side.ordinal() * 4 + dir]; }
+
+  /**
+   * Sets the four sides of the cell at <code>(x, y)</code>
+   *
+   * @param x     the x position
+   * @param y     the y position
+   * @param sides the top, right, bottom, and left sides respectively
+   */
+  void setSides(int x, int y, Cell.Side... sides) {
+    int i = index(x, y);
+    for (int dir = 0; dir < 4; dir++) {
+      for (Cell.Side side : SIDES) clear(plane(side, dir), i);
+      set(plane(sides[dir], dir), i);
+
+      // Update the signature of the neighbour facing this side
+      if (test(hasNeighbour[dir], i)) {
+        int n = i + offsets[dir];
+        int shift = ((dir + 2) & 3) * 2;
+        signatures[n] = (byte) ((signatures[n] & ~(3 << shift)) | (sides[dir].ordinal() << shift));
+      }
+    }
+  }
+
+  /**
+   * Returns the neighbour signature of the cell at the specified packed index
+   *
+   * @param index the packed index
+   * @return the 8-bit signature
+   */
+  int signature(int index) { return signatures[index] & 0xff; }
+
+  /**
+   * Empties the cell at <code>(x, y)</code>
+   *
+   * @param x the x position
+   * @param y the y position
+   */
+  void clearCell(int x, int y) {
+    setSides(x, y, Cell.Side.EMPTY, Cell.Side.EMPTY, Cell.Side.EMPTY, Cell.Side.EMPTY);
+  }
+
+  /**
+   * Returns the side value of the cell at <code>(x, y)</code> in the specified direction
+   *
+   * @param x   the x position
+   * @param y   the y position
+   * @param dir the direction
+   * @return the side value
+   */
+  Cell.Side sideAt(int x, int y, int dir) {
+    int i = index(x, y);
+    for (Cell.Side side : SIDES) {
+      if (test(plane(side, dir), i)) return side;
+    }
+    return Cell.Side.EMPTY;
+  }
+
+  /**
+   * Flood-fills through connected path sides from the specified <code>(x, y)</code> position.
+   * <p>
+   * A cell joins the result when a cell already in the result has a path side facing it,
+   * which is the same rule as the former depth-first search of {@link Board#getReachable()}.
+   * </p>
+   *
+   * @param x the x position to start from
+   * @param y the y position to start from
+   * @return a mask of all reachable cells
+   */
+  long[] reachableFrom(int x, int y) {
+    return reachableFrom(x, y, boardMask);
+  }
+
+  /**
+   * Flood-fills through connected path sides from the specified <code>(x, y)</code> position,
+   * without leaving the cells marked by <code>within</code>
+   *
+   * @param x      the x position to start from
+   * @param y      the y position to start from
+   * @param within the cells the fill is restricted to
+   * @return a mask of all reachable cells inside <code>within</code>
+   */
+  long[] reachableFrom(int x, int y, long[] within) {
+    long[] reach = new long[words];
+    set(reach, index(x, y));
+    fill(reach, within);
+    return reach;
+  }
+
+  /**
+   * Extends an already flood-filled mask in place, following connected path sides
+   *
+   * @param reach the mask to be extended
+   */
+  void extend(long[] reach) {
+    fill(reach, boardMask);
+  }
+
+  /**
+   * Extends an already flood-filled mask in place, as if a card with path sides in the
+   * specified directions was placed on the cell at the specified packed index. The board
+   * itself is left unchanged, and no memory is allocated
+   *
+   * @param reach    the mask to be extended
+   * @param index    the packed index of the hypothetical card
+   * @param pathDirs the directions of the card's path sides, as a bit set
+   */
+  void extendWith(long[] reach, int index, int pathDirs) {
+    for (int dir = 0; dir < 4; dir++) {
+      whatIf[dir] = paths[dir];
+      if ((pathDirs & (1 << dir)) != 0) {
+        System.arraycopy(paths[dir], 0, whatIfPlanes[dir], 0, words);
+        set(whatIfPlanes[dir], index);
+        whatIf[dir] = whatIfPlanes[dir];
+      }
+    }
+    fill(reach, boardMask, whatIf);
+  }
+
+  /**
+   * Flood-fills the specified mask in place until no more cells can be reached
+   *
+   * @param reach  the mask to be filled
+   * @param within the cells the fill is restricted to
+   */
+  private void fill(long[] reach, long[] within) {
+    fill(reach, within, paths);
+  }
+
+  /**
+   * Flood-fills the specified mask in place through the specified path planes
+   *
+   * @param reach  the mask to be filled
+   * @param within the cells the fill is restricted to
+   * @param path   the path planes, indexed by direction
+   */
+  private void fill(long[] reach, long[] within, long[][] path) {
+    if (words == 1) {
+      reach[0] = flood(reach[0], within[0], path);
+      return;
+    }
+    while (true) {
+      System.arraycopy(reach, 0, step, 0, words);
+      for (int dir = 0; dir < 4; dir++) {
+        orShifted(reach, path[dir], hasNeighbour[dir], offsets[dir], step);
+      }
+      for (int i = 0; i < words; i++) step[i] &= within[i];
+      if (Arrays.equals(reach, step)) return;
+      System.arraycopy(step, 0, reach, 0, words);
+    }
+  }
+
+  /**
+   * Single-word flood fill
+   *
+   * @param reach  the starting mask
+   * @param within the cells the fill is restricted to
+   * @param path   the path planes, indexed by direction
+   * @return the reachable mask
+   */
+  private long flood(long reach, long within, long[][] path) {
+    long top = path[TOP][0] & hasNeighbour[TOP][0];
+    long right = path[RIGHT][0] & hasNeighbour[RIGHT][0];
+    long bottom = path[BOTTOM][0] & hasNeighbour[BOTTOM][0];
+    long left = path[LEFT][0] & hasNeighbour[LEFT][0];
+    long prev;
+    do {
+      prev = reach;
+      reach |= ((reach & top) >>> 1)
+               | ((reach & right) << height)
+               | ((reach & bottom) << 1)
+               | ((reach & left) >>> height);
+      reach &= within;
+    } while (reach != prev);
+    return reach;
+  }
+
+  /**
+   * Computes breadth-first distances through the <code>passable</code> cells, one layer
+   * at a time. Cells in <code>sources</code> are at distance 1
+   *
+   * @param sources  the cells at distance 1
+   * @param passable the cells the search may enter
+   * @param dist     the distance of every cell, written by packed index, or <code>-1</code> if not reached
+   */
+  void distances(long[] sources, long[] passable, int[] dist) {
+    Arrays.fill(dist, -1);
+    System.arraycopy(sources, 0, visited, 0, words);
+    System.arraycopy(sources, 0, this.layer, 0, words);
+    long[] layer = this.layer;
+    long[] next = this.next;
+    for (int d = 1; ; d++) {
+      boolean any = false;
+      for (int i = nextSetBit(layer, 0); i >= 0; i = nextSetBit(layer, i + 1)) {
+        dist[i] = d;
+        any = true;
+      }
+      if (!any) return;
+      Arrays.fill(next, 0);
+      for (int dir = 0; dir < 4; dir++) {
+        orShifted(layer, hasNeighbour[dir], boardMask, offsets[dir], next);
+      }
+      for (int w = 0; w < words; w++) {
+        next[w] &= passable[w] & ~visited[w];
+        visited[w] |= next[w];
+      }
+      long[] tmp = layer; layer = next; next = tmp;
+    }
+  }
+
+  /**
+   * Returns the breadth-first distance from <code>sources</code> to the nearest cell of
+   * <code>targets</code>, walking through the <code>passable</code> cells. Cells in
+   * <code>sources</code> are at distance 1. No memory is allocated
+   *
+   * @param sources  the cells at distance 1
+   * @param passable the cells the search may enter
+   * @param targets  the cells to be reached
+   * @return the distance, or <code>-1</code> if no target can be reached
+   */
+  int distance(long[] sources, long[] passable, long[] targets) {
+    System.arraycopy(sources, 0, visited, 0, words);
+    System.arraycopy(sources, 0, this.layer, 0, words);
+    long[] layer = this.layer;
+    long[] next = this.next;
+    for (int d = 1; ; d++) {
+      boolean any = false;
+      for (int w = 0; w < words; w++) {
+        if ((layer[w] & targets[w]) != 0) return d;
+        any |= layer[w] != 0;
+      }
+      if (!any) return -1;
+      Arrays.fill(next, 0);
+      for (int dir = 0; dir < 4; dir++) {
+        orShifted(layer, hasNeighbour[dir], boardMask, offsets[dir], next);
+      }
+      for (int w = 0; w < words; w++) {
+        next[w] &= passable[w] & ~visited[w];
+        visited[w] |= next[w];
+      }
+      long[] tmp = layer; layer = next; next = tmp;
+    }
+  }
+
+  /**
+   * Computes the legal placement mask of every orientation at once.
+   * <p>
+   * For each direction, the neighbours' facing sides are shifted onto the cells they
+   * face, one plane per side value. A cell rejects a card side when its neighbour in
+   * that direction shows an incompatible side, so an orientation is legal wherever none
+   * of its four sides is rejected.
+   * </p>
+   *
+   * @param candidates the cells a card may be placed on, regardless of sides
+   * @return the legal placement masks, indexed by orientation number, which are
+   * overwritten by the next computation
+   * @see SideCompatibility
+   */
+  long[][] placementMasks(long[] candidates) {
+    for (long[] mask : rejecting) Arrays.fill(mask, 0);
+    for (int dir = 0; dir < 4; dir++) {
+      int opposite = (dir + 2) & 3;
+      for (Cell.Side side : SIDES) {
+        if (side == Cell.Side.EMPTY) continue;
+        Arrays.fill(facing, 0);
+        orShifted(plane(side, opposite), hasNeighbour[opposite], boardMask, offsets[opposite], facing);
+        for (PathCard.Side cardSide : CARD_SIDES) {
+          if (SideCompatibility.compatible(cardSide, side)) continue;
+          long[] mask = rejecting[dir * CARD_SIDES.length + cardSide.ordinal()];
+          for (int w = 0; w < words; w++) mask[w] |= facing[w];
+        }
+      }
+    }
+
+    long[][] masks = placements;
+    for (int orientation = 0; orientation < masks.length; orientation++) {
+      int code = SideCompatibility.code(orientation);
+      long[] top = rejecting[TOP * CARD_SIDES.length + (code & 3)];
+      long[] right = rejecting[RIGHT * CARD_SIDES.length + ((code >>> 2) & 3)];
+      long[] bottom = rejecting[BOTTOM * CARD_SIDES.length + ((code >>> 4) & 3)];
+      long[] left = rejecting[LEFT * CARD_SIDES.length + ((code >>> 6) & 3)];
+      for (int w = 0; w < words; w++) {
+        masks[orientation][w] = candidates[w] & ~(top[w] | right[w] | bottom[w] | left[w]);
+      }
+    }
+    return masks;
+  }
+
+  /**
+   * Returns a mask of all empty cells
+   *
+   * @return the live empty mask
+   */
+  long[] empty() { return plane(Cell.Side.EMPTY, TOP); }
+
+  /**
+   * Returns a mask of all cells that contain a card
+   *
+   * @return the occupied mask
+   */
+  long[] occupied() {
+    long[] empty = plane(Cell.Side.EMPTY, TOP);
+    long[] occupied = new long[words];
+    for (int w = 0; w < words; w++) occupied[w] = boardMask[w] & ~empty[w];
+    return occupied;
+  }
+
+  /**
+   * ORs <code>src &amp; a &amp; b</code>, shifted by <code>n</code> bits, into <code>dst</code>
+   *
+   * @param src the source mask
+   * @param a   the first selection mask
+   * @param b   the second selection mask
+   * @param n   the shift amount, positive towards higher indices
+   * @param dst the destination mask
+   */
+  private static void orShifted(long[] src, long[] a, long[] b, int n, long[] dst) {
+    int len = dst.length;
+    int shift = Math.abs(n);
+    int ws = shift >>> 6;
+    int bs = shift & 63;
+    for (int i = 0; i < len; i++) {
+      int j = n >= 0 ? i - ws : i + ws;
+      long v = 0;
+      if (j >= 0 && j < len) {
+        long w = src[j] & a[j] & b[j];
+        v = n >= 0 ? w << bs : w >>> bs;
+      }
+      int k = n >= 0 ? j - 1 : j + 1;
+      if (bs != 0 && k >= 0 && k < len) {
+        long w = src[k] & a[k] & b[k];
+        v |= n >= 0 ? w >>> (64 - bs) : w << (64 - bs);
+      }
+      dst[i] |= v;
+    }
+  }
+
+  /**
+   * Tests a bit of a mask
+   *
+   * @param mask  the mask
+   * @param index the packed index
+   * @return <code>true</code> if the bit is set
+   */
+  static boolean test(long[] mask, int index) {
+    return (mask[index >>> 6] & (1L << index)) != 0;
+  }
+
+  /**
+   * Returns the index of the first set bit at or after <code>from</code>
+   *
+   * @param mask the mask
+   * @param from the index to start from
+   * @return the index of the next set bit, or <code>-1</code> if there is none
+   */
+  static int nextSetBit(long[] mask, int from) {
+    int w = from >>> 6;
+    if (w >= mask.length) return -1;
+    long word = mask[w] & (-1L << from);
+    while (true) {
+      if (word != 0) return (w << 6) + Long.numberOfTrailingZeros(word);
+      if (++w == mask.length) return -1;
+      word = mask[w];
+    }
+  }
+
+  /**
+   * Sets a bit of a mask
+   *
+   * @param mask  the mask
+   * @param index the packed index
+   */
+  static void set(long[] mask, int index) { mask[index >>> 6] |= 1L << index; }
+
+  /**
+   * Clears a bit of a mask
+   *
+   * @param mask  the mask
+   * @param index the packed index
+   */
+  static void clear(long[] mask, int index) { mask[index >>> 6] &= ~(1L << index); }
+}
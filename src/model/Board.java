@@ -1,19 +1,22 @@
 package model;
 
+import model.cards.OrientedPath;
 import model.cards.PathCard;
 
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
-import java.util.Stack;
-import java.util.stream.Collectors;
 
 /**
  * The {@link Board} class represents a Saboteur game board.
  * It contains all the necessary methods for game board logic.
+ * <p>
+ * The board's cells span a fixed bounding box, backed by a {@link BitBoard}. A maze that
+ * must grow past its start and goal cards is played on a {@link SparseBoard} instead.
+ * </p>
  */
 @SuppressWarnings({"unused", "WeakerAccess"})
-public class Board {
+public class Board extends GameBoard {
   /** The {@link GoalPosition} enum represents every valid goal position in the game */
   public enum GoalPosition {TOP, MIDDLE, BOTTOM}
 
@@ -21,21 +24,74 @@ public class Board {
   public static final int DEFAULT_WIDTH = 9;
   /** The default board height specified in the game rule */
   public static final int DEFAULT_HEIGHT = 5;
+  /** Cached path types, indexed by ordinal */
+  private static final PathCard.Type[] PATH_TYPES = PathCard.Type.values();
 
   /** The width of the board */
   private final int width;
   /** The height of the board */
   private final int height;
+  /** The canonical positions of the board */
+  private final Grid grid;
   /** Cells in the board */
   private final Cell[][] cells;
+  /** The bitboard engine mirroring the cells' sides */
+  private final BitBoard engine;
+  /** The mutation version of the board, incremented on every change */
+  private long version;
+  /** The Zobrist hash of the goal layout and every path card, see {@link Zobrist} */
+  private long hash;
+  /** The cached mask of all positions reachable from the starting cell */
+  private long[] reachable;
+  /** The placement frontier: every empty, non-goal cell reachable through a path side */
+  private final long[] frontier;
+  /** Scratch copy of the reachable mask before a placement */
+  private final long[] previous;
+  /** The cached legal placement masks, indexed by orientation */
+  private long[][] placeable;
+  /** The version the placement masks were computed at */
+  private long placeableVersion = -1;
+  /** The mask of the start and goal positions */
+  private final long[] specials;
+  /** The cached distance field, see {@link Board#distanceAt(int, int)} */
+  private final int[] distances;
+  /** The cached distance of each goal, indexed by {@link GoalPosition} ordinal */
+  private final int[] goalDistances = new int[GoalPosition.values().length];
+  /** The version the distance field was computed at */
+  private long distanceVersion = -1;
+  /** Scratch mask of the empty, non-special cells a distance search may enter */
+  private final long[] passable;
+  /** Scratch mask of the reachable cells after a hypothetical placement */
+  private final long[] whatIf;
+  /** Scratch mask of the cells a hypothetical distance search starts from */
+  private final long[] sources;
+  /** The mask of the in-board neighbours of each goal, indexed by {@link GoalPosition} ordinal */
+  private final long[][] goalNeighbours;
+  /** The orientation of the path card placed on each cell, or <code>-1</code> if none */
+  private final byte[] orientations;
   /** The top goal card */
   private GoalType topGoal;
   /** The middle goal card */
   private GoalType middleGoal;
   /** The bottom goal card */
   private GoalType bottomGoal;
-  /** Marks the top goal as opened */
-  private boolean topGoalOpened;
+  /** The starting cell position */
+  private final Position start;
+  /** The top goal's position */
+  private final Position topGoalPos;
+  /** The middle goal's position */
+  private final Position middleGoalPos;
+  /** The bottom goal's position */
+  private final Position bottomGoalPos;
+  /** The goals reachable from the starting cell, as a bit set of {@link GoalPosition} ordinals */
+  private int reachedGoals;
+  /** The goals holding the gold, as a bit set of {@link GoalPosition} ordinals */
+  private int goldGoals;
+
+  /** The minimum board width, leaving room for the start and goal cards */
+  public static final int MIN_WIDTH = 2;
+  /** The minimum board height, leaving room for three distinct goal cards */
+  public static final int MIN_HEIGHT = 3;
 
   /**
    * Creates a {@link Board} object.
@@ -45,9 +101,33 @@ public class Board {
    * </p>
    */
   public Board() {
+    this(DEFAULT_WIDTH, DEFAULT_HEIGHT);
+  }
+
+  /**
+   * Creates a {@link Board} object of the specified dimension.
+   * <p>
+   * The starting cell is placed in the middle of the leftmost column, and the goals
+   * at the top, middle, and bottom of the rightmost column
+   * </p>
+   *
+   * @param width  the width of the board
+   * @param height the height of the board
+   * @throws IllegalArgumentException when the dimension is below <code>MIN_WIDTH</code> &times; <code>MIN_HEIGHT</code>
+   */
+  public Board(int width, int height) {
+    if (width < MIN_WIDTH || height < MIN_HEIGHT) {
+      String msgFormat = "Invalid board size %dx%d, expected at least %dx%d";
+      throw new IllegalArgumentException(String.format(msgFormat, width, height, MIN_WIDTH, MIN_HEIGHT));
+    }
     // Initialize board dimension
-    this.width = DEFAULT_WIDTH;
-    this.height = DEFAULT_HEIGHT;
+    this.width = width;
+    this.height = height;
+    this.grid = Grid.of(this.width, this.height);
+    this.start = grid.at(0, this.height / 2);
+    this.topGoalPos = grid.at(this.width - 1, 0);
+    this.middleGoalPos = grid.at(this.width - 1, this.height / 2);
+    this.bottomGoalPos = grid.at(this.width - 1, this.height - 1);
     // Initialize cells
     this.cells = new Cell[this.width][this.height];
     for (int x = 0; x < width; x++) {
@@ -55,6 +135,25 @@ public class Board {
         cells[x][y] = new Cell(x, y);
       }
     }
+    this.engine = new BitBoard(this.width, this.height);
+    this.reachable = this.engine.reachableFrom(start.x, start.y);
+    this.specials = new long[this.engine.words()];
+    BitBoard.set(specials, start.packed());
+    BitBoard.set(specials, topGoalPos.packed());
+    BitBoard.set(specials, middleGoalPos.packed());
+    BitBoard.set(specials, bottomGoalPos.packed());
+    this.frontier = new long[this.engine.words()];
+    this.previous = new long[this.engine.words()];
+    this.distances = new int[grid.size()];
+    this.passable = new long[this.engine.words()];
+    this.whatIf = new long[this.engine.words()];
+    this.sources = new long[this.engine.words()];
+    this.goalNeighbours = new long[GoalPosition.values().length][];
+    for (GoalPosition goal : GoalPosition.values()) {
+      this.goalNeighbours[goal.ordinal()] = goalNeighbours(goalPosition(goal));
+    }
+    this.orientations = new byte[grid.size()];
+    Arrays.fill(this.orientations, (byte) -1);
   }
 
   /**
@@ -66,17 +165,30 @@ public class Board {
    */
   final void initialize(GoalType topGoal, GoalType midGoal, GoalType botGoal) {
     // Open starting cell sides
-    this.cells[0][this.height / 2].openAllSides();
+    this.openAllSidesAt(0, this.height / 2);
 
     // Open goal cell sides
-    this.cells[this.width - 1][0].openAllSides();
-    this.cells[this.width - 1][this.height / 2].openAllSides();
-    this.cells[this.width - 1][this.height - 1].openAllSides();
+    this.openAllSidesAt(this.width - 1, 0);
+    this.openAllSidesAt(this.width - 1, this.height / 2);
+    this.openAllSidesAt(this.width - 1, this.height - 1);
 
     // Set goals
     this.topGoal = topGoal;
     this.middleGoal = midGoal;
     this.bottomGoal = botGoal;
+    this.hash ^= Zobrist.goal(GoalPosition.TOP, topGoal)
+                 ^ Zobrist.goal(GoalPosition.MIDDLE, midGoal)
+                 ^ Zobrist.goal(GoalPosition.BOTTOM, botGoal);
+    this.goldGoals = (topGoal == GoalType.GOLD ? 1 << GoalPosition.TOP.ordinal() : 0)
+                     | (midGoal == GoalType.GOLD ? 1 << GoalPosition.MIDDLE.ordinal() : 0)
+                     | (botGoal == GoalType.GOLD ? 1 << GoalPosition.BOTTOM.ordinal() : 0);
+
+    // Compute the initial reachable positions and frontier
+    this.reachable = engine.reachableFrom(start.x, start.y);
+    long[] empty = engine.empty();
+    for (int w = 0; w < frontier.length; w++) frontier[w] = reachable[w] & empty[w] & ~specials[w];
+    this.updateReachedGoals();
+    this.version++;
   }
 
   /**
@@ -96,8 +208,36 @@ public class Board {
       String msgFormat = "Card cannot be placed at position (%d, %d)";
       throw new GameException(msgFormat, x, y);
     }
+    this.putPathCardAt(card, x, y);
+  }
 
-    this.cells[x][y].placePathCard(card);
+  /**
+   * Puts a path card on the specified empty <code>(x, y)</code> position without checking the
+   * placement rules. Used to place a legal card, and to restore a removed card when undoing a move
+   *
+   * @param card the path card to be put
+   * @param x    the x position
+   * @param y    the y position
+   */
+  final void putPathCardAt(PathCard card, int x, int y) {
+    Cell cell = this.cells[x][y];
+    cell.placePathCard(card);
+    this.engine.setSides(x, y, cell.topSide(), cell.rightSide(), cell.bottomSide(), cell.leftSide());
+    this.orientations[grid.pack(x, y)] = (byte) SideCompatibility.orientation(card);
+    this.hash ^= Zobrist.cell(x, y, SideCompatibility.orientation(card));
+
+    // Only the target's new path sides can extend the reachable set, and only if it is reachable
+    System.arraycopy(this.reachable, 0, this.previous, 0, previous.length);
+    this.engine.extend(this.reachable);
+
+    // The target leaves the frontier, and newly reached empty cells join it
+    BitBoard.clear(this.frontier, grid.pack(x, y));
+    long[] empty = engine.empty();
+    for (int w = 0; w < frontier.length; w++) {
+      frontier[w] |= reachable[w] & ~previous[w] & empty[w] & ~specials[w];
+    }
+    this.updateReachedGoals();
+    this.version++;
   }
 
   /**
@@ -119,7 +259,7 @@ public class Board {
    * @throws GameException when position is out of bounds, equals start/goal, or has empty cell
    */
   final void removeCardAt(int x, int y) throws GameException {
-    this.removeCardAt(new Position(x, y));
+    this.removeCardAt(isInBoard(x, y) ? grid.at(x, y) : new Position(x, y));
   }
 
   /**
@@ -145,12 +285,70 @@ public class Board {
       throw new GameException("Cannot remove any of the goal cards");
     }
     // Check if contains card
-    if (!cellAt(target).hasCard()) {
+    if (!cells[target.x][target.y].hasCard()) {
       String msgFormat = "Cell at (%d, %d) is empty";
       throw new GameException(msgFormat, target.x, target.y);
     }
+    this.clearCardAt(target.x, target.y);
+  }
+
+  /**
+   * Removes the path card from the specified <code>(x, y)</code> position without checking
+   * the rules. Used to remove a legal target, and to take back a placed card when undoing a move
+   *
+   * @param x the x position
+   * @param y the y position
+   */
+  final void clearCardAt(int x, int y) {
+    int i = grid.pack(x, y);
+    this.cells[x][y].removeCard();
+    this.engine.clearCell(x, y);
+    this.hash ^= Zobrist.cell(x, y, orientations[i]);
+    this.orientations[i] = -1;
+
+    // Removing a card can only disconnect cells that were reachable through it
+    if (BitBoard.test(this.reachable, i)) {
+      this.reachable = engine.reachableFrom(start.x, start.y, this.reachable);
+      // Disconnected cells leave the frontier, and the emptied target joins it if still reachable
+      for (int w = 0; w < frontier.length; w++) frontier[w] &= reachable[w];
+      if (BitBoard.test(this.reachable, i)) BitBoard.set(this.frontier, i);
+      this.updateReachedGoals();
+    }
+    this.version++;
+  }
 
-    this.cells[target.x][target.y].removeCard();
+  /**
+   * Returns the path card placed at the specified <code>(x, y)</code> position
+   *
+   * @param x the x position
+   * @param y the y position
+   * @return the path card, or <code>null</code> if none
+   */
+  final PathCard pathCardAt(int x, int y) {
+    if (!isInBoard(x, y) || orientations[grid.pack(x, y)] < 0) return null;
+    return (PathCard) cells[x][y].card();
+  }
+
+  /**
+   * Recomputes the reached goals from the reachable mask
+   */
+  private void updateReachedGoals() {
+    int reached = 0;
+    if (BitBoard.test(reachable, grid.pack(topGoalPos.x, topGoalPos.y))) reached |= 1 << GoalPosition.TOP.ordinal();
+    if (BitBoard.test(reachable, grid.pack(middleGoalPos.x, middleGoalPos.y))) reached |= 1 << GoalPosition.MIDDLE.ordinal();
+    if (BitBoard.test(reachable, grid.pack(bottomGoalPos.x, bottomGoalPos.y))) reached |= 1 << GoalPosition.BOTTOM.ordinal();
+    this.reachedGoals = reached;
+  }
+
+  /**
+   * Opens all sides of the cell at the specified <code>(x, y)</code> position
+   *
+   * @param x the x position
+   * @param y the y position
+   */
+  private void openAllSidesAt(int x, int y) {
+    this.cells[x][y].openAllSides();
+    this.engine.setSides(x, y, Cell.Side.PATH, Cell.Side.PATH, Cell.Side.PATH, Cell.Side.PATH);
   }
 
   /**
@@ -180,11 +378,17 @@ public class Board {
    * @return a boolean indicating if the gold is reached
    */
   public final boolean isGoldReached() {
-    return (isReachable(topGoalPosition()) && topGoal == GoalType.GOLD)
-           || (isReachable(middleGoalPosition()) && middleGoal == GoalType.GOLD)
-           || (isReachable(bottomGoalPosition()) && bottomGoal == GoalType.GOLD);
+    return (reachedGoals & goldGoals) != 0;
   }
 
+  /**
+   * Returns the goals reachable from the starting cell. The set is maintained on every
+   * placement and removal, so it can be polled after each move
+   *
+   * @return the reached goals, as a bit set of {@link GoalPosition} ordinals
+   */
+  public final int reachedGoals() { return reachedGoals; }
+
   /**
    * Checks whether the specified <code>(x, y)</code> position is reachable from
    * the board's starting position
@@ -194,7 +398,7 @@ public class Board {
    * @return a boolean representing whether the targeted position is reachable
    */
   public final boolean isReachable(int x, int y) {
-    return this.isReachable(new Position(x, y));
+    return isInBoard(x, y) && BitBoard.test(reachable, grid.pack(x, y));
   }
 
   /**
@@ -207,11 +411,8 @@ public class Board {
   public final boolean isReachable(Position target) {
     // Check if position is not null
     if (target == null) return false;
-    // Check is position is in board
-    if (!isInBoard(target)) return false;
 
-    Set<Position> reachable = getReachable();
-    return reachable.contains(target);
+    return this.isReachable(target.x, target.y);
   }
 
   /**
@@ -222,7 +423,7 @@ public class Board {
    * @return a boolean representing whether the targeted position is destroyable
    */
   public final boolean isDestroyable(int x, int y){
-    return this.isDestroyable(new Position(x, y));
+    return isInBoard(x, y) && this.isDestroyable(grid.at(x, y));
   }
 
   /**
@@ -232,112 +433,224 @@ public class Board {
    * @return a boolean representing whether the targeted position is destroyable
    */
   public final boolean isDestroyable(Position target) {
-    return !target.equals(startPosition())
-           && !target.equals(topGoalPosition())
-           && !target.equals(middleGoalPosition())
-           && !target.equals(bottomGoalPosition())
-           && cellAt(target).hasCard();
+    return isInBoard(target)
+           && !target.equals(start)
+           && !target.equals(topGoalPos)
+           && !target.equals(middleGoalPos)
+           && !target.equals(bottomGoalPos)
+           && cells[target.x][target.y].hasCard();
   }
 
   /**
-   * Checks whether the specified path card is placeable at the specified
-   * <code>(x, y)</code> position
+   * Checks whether a path card of the specified type and rotation is placeable at the
+   * specified <code>(x, y)</code> position
    *
-   * @param card the checked path card
-   * @param x    the target x position
-   * @param y    the target y position
+   * @param type    the path type
+   * @param rotated <code>true</code> if the card is rotated
+   * @param x       the target x position
+   * @param y       the target y position
    * @return a boolean representing a card's placeability
    */
-  public final boolean isCardPlaceableAt(PathCard card, int x, int y) {
-    return this.isCardPlaceableAt(card, new Position(x, y));
+  public final boolean isCardPlaceableAt(PathCard.Type type, boolean rotated, int x, int y) {
+    // Check if target is in board
+    if (!isInBoard(x, y)) return false;
+    // Check if target is an empty, reachable cell
+    int i = grid.pack(x, y);
+    if (!BitBoard.test(frontier, i)) return false;
+
+    return checkTouchingSides(SideCompatibility.orientation(type, rotated), i);
   }
 
   /**
-   * Checks whether the specified path card is placeable at the specified target
+   * Validates the placement of the specified oriented path on the specified <code>(x, y)</code>
+   * position, without throwing or allocating
    *
-   * @param card   the checked path card
-   * @param target the target position
-   * @return a boolean representing a card's placeability
+   * @param path the oriented path
+   * @param x    the target x position
+   * @param y    the target y position
+   * @return {@link MoveStatus#OK} if the path is placeable, or the reason it is not
    */
-  public final boolean isCardPlaceableAt(PathCard card, Position target) {
-    // Check target is not null
-    if (target == null) return false;
-    // Check if target is in board
-    if (!isInBoard(target)) {
-      System.out.println(target + " out of bounds");
-      return false;
-    }
-    // Check if cell contains a card
-    if (cellAt(target).hasCard()) {
-      System.out.println(target + " not empty");
-      System.out.println(Arrays.toString(cellAt(target).sides()));
-      return false;
-    }
-    // Check if reachable
-    if (!isReachable(target)) {
-      System.out.println(target + " unreachable");
-      System.out.println(getReachable());
-      return false;
+  public final MoveStatus placementStatus(OrientedPath path, int x, int y) {
+    if (!isInBoard(x, y)) return MoveStatus.OUT_OF_BOUNDS;
+    int i = grid.pack(x, y);
+    if (BitBoard.test(frontier, i)) {
+      return checkTouchingSides(path.index(), i) ? MoveStatus.OK : MoveStatus.SIDE_MISMATCH;
     }
+    if (orientations[i] >= 0 || BitBoard.test(specials, i)) return MoveStatus.OCCUPIED;
+    return MoveStatus.UNREACHABLE;
+  }
 
-    if (!checkTouchingSides(card, target)) {
-      System.out.println(target + " invalid sides");
+  /**
+   * Validates the removal of the card on the specified <code>(x, y)</code> position,
+   * without throwing or allocating
+   *
+   * @param x the targeted x position
+   * @param y the targeted y position
+   * @return {@link MoveStatus#OK} if the card is destroyable, or the reason it is not
+   */
+  public final MoveStatus removalStatus(int x, int y) {
+    if (!isInBoard(x, y)) return MoveStatus.OUT_OF_BOUNDS;
+    int i = grid.pack(x, y);
+    if (BitBoard.test(specials, i)) return MoveStatus.PROTECTED_CELL;
+    return orientations[i] >= 0 ? MoveStatus.OK : MoveStatus.EMPTY_CELL;
+  }
+
+  /**
+   * Finds the next path card a rockfall may remove, starting at the specified packed coordinate
+   *
+   * @param from the first packed coordinate to be checked
+   * @return the packed coordinate of the removable card, or <code>-1</code> if there is none
+   */
+  final int nextRemovable(int from) {
+    for (int i = Math.max(from, 0); i < orientations.length; i++) {
+      if (orientations[i] >= 0 && !BitBoard.test(specials, i)) return i;
     }
-    return checkTouchingSides(card, target);
+    return -1;
   }
 
+  /**
+   * Finds the next position the specified oriented path can be placed on, from the cached
+   * placement masks, starting at the specified packed coordinate
+   *
+   * @param path the oriented path
+   * @param from the first packed coordinate to be checked
+   * @return the packed coordinate of the position, or <code>-1</code> if there is none
+   */
+  final int nextPlaceable(OrientedPath path, int from) {
+    return BitBoard.nextSetBit(placementMasks()[path.index()], Math.max(from, 0));
+  }
+
+  @Override
+  final int cellX(int cell) { return grid.x(cell); }
+
+  @Override
+  final int cellY(int cell) { return grid.y(cell); }
+
   /**
    * Gets all reachable positions from the starting cell
    *
    * @return a set containing all reachable positions
    */
   public final Set<Position> getReachable() {
-    // Do depth-first search from start position
-    Set<Position> visited = new HashSet<>();
-    Position start = startPosition();
-    Stack<Position> s = new Stack<>();
-    s.push(start);
-    while (!s.empty()) {
-      Position curr = s.pop();
-      if (visited.contains(curr)) continue;
-      visited.add(curr);
-      Cell currCell = cellAt(curr);
-
-      if (!currCell.hasCard()) { continue; }
-
-      if (isInBoard(curr.top()) && currCell.topSide() == Cell.Side.PATH) {
-        s.push(curr.top());
-      }
-      if (isInBoard(curr.right()) && currCell.rightSide() == Cell.Side.PATH) {
-        s.push(curr.right());
-      }
-      if (isInBoard(curr.bottom()) && currCell.bottomSide() == Cell.Side.PATH) {
-        s.push(curr.bottom());
-      }
-      if (isInBoard(curr.left()) && currCell.leftSide() == Cell.Side.PATH) {
-        s.push(curr.left());
-      }
+    Set<Position> reachable = new HashSet<>();
+    for (int i = BitBoard.nextSetBit(this.reachable, 0); i >= 0; i = BitBoard.nextSetBit(this.reachable, i + 1)) {
+      reachable.add(grid.position(i));
     }
-    return visited;
+    return reachable;
   }
 
   /**
-   * Gets all placeable positions of the specified path card
+   * Returns a bitmask of all reachable positions from the starting cell. Bit
+   * <code>x * height + y</code> marks the position <code>(x, y)</code>.
+   * <p>
+   * The mask is maintained on every placement and removal, and must not be modified.
+   * </p>
    *
-   * @param card the path card to be placed
+   * @return the reachable mask
+   */
+  final long[] reachableMask() {
+    return this.reachable;
+  }
+
+  /**
+   * Gets all placeable positions of the specified oriented path
+   *
+   * @param path the oriented path to be placed
    * @return a set containing all placeable positions
    */
-  public final Set<Position> getPlaceable(PathCard card) {
-    Set<Position> reachable = getReachable();
-    return getReachable().stream()
-      .filter(p ->
-        !(p.equals(startPosition())
-          || p.equals(topGoalPosition())
-          || p.equals(middleGoalPosition())
-          || p.equals(bottomGoalPosition())
-          || cellAt(p).hasCard())
-        && checkTouchingSides(card, p))
-      .collect(Collectors.toSet());
+  public final Set<Position> getPlaceable(OrientedPath path) {
+    int orientation = path.index();
+    Set<Position> placeable = new HashSet<>();
+    for (int i = BitBoard.nextSetBit(frontier, 0); i >= 0; i = BitBoard.nextSetBit(frontier, i + 1)) {
+      if (checkTouchingSides(orientation, i)) placeable.add(grid.position(i));
+    }
+    return placeable;
+  }
+
+  /**
+   * Gets the placement frontier: every empty cell adjacent to a reachable path side.
+   * Path cards can only ever be placed on frontier cells
+   *
+   * @return a set containing all frontier positions
+   */
+  public final Set<Position> getFrontier() {
+    Set<Position> positions = new HashSet<>();
+    for (int i = BitBoard.nextSetBit(frontier, 0); i >= 0; i = BitBoard.nextSetBit(frontier, i + 1)) {
+      positions.add(grid.position(i));
+    }
+    return positions;
+  }
+
+  /**
+   * Returns the side constraints of the cell at <code>(x, y)</code>, as an 8-bit signature holding
+   * the {@link Cell.Side} ordinal of each neighbouring side facing the cell at bits
+   * <code>2 * direction</code>. Out-of-board and empty neighbours count as {@link Cell.Side#EMPTY}
+   *
+   * @param x the x position
+   * @param y the y position
+   * @return the cell's neighbour signature
+   */
+  public final int neighbourSignature(int x, int y) {
+    return engine.signature(grid.pack(x, y));
+  }
+
+  /**
+   * Returns a bitmask of the placement frontier, maintained on every placement and removal
+   *
+   * @return the frontier mask, which must not be modified
+   */
+  final long[] frontierMask() {
+    return this.frontier;
+  }
+
+  /**
+   * Returns a bitmask of every position a path card of the specified type and rotation
+   * can legally be placed on. Bit <code>x * height + y</code> marks the position <code>(x, y)</code>
+   *
+   * @param type    the path type
+   * @param rotated <code>true</code> if the card is rotated
+   * @return the placeable mask
+   */
+  public final long[] placeableMask(PathCard.Type type, boolean rotated) {
+    return placementMasks()[SideCompatibility.orientation(type, rotated)].clone();
+  }
+
+  /**
+   * Returns a bitmask of every position the specified oriented path can legally be placed on
+   *
+   * @param path the oriented path
+   * @return the placeable mask
+   * @see Board#placeableMask(PathCard.Type, boolean)
+   */
+  public final long[] placeableMask(OrientedPath path) {
+    return placementMasks()[path.index()].clone();
+  }
+
+  /**
+   * Returns the placeable masks of all path types in both rotations, computed in one pass.
+   * The mask of a type and rotation is found at index <code>type.ordinal() * 2 + (rotated ? 1 : 0)</code>
+   *
+   * @return the placeable masks
+   * @see Board#placeableMask(PathCard.Type, boolean)
+   */
+  public final long[][] placeableMasks() {
+    long[][] masks = placementMasks();
+    long[][] copy = new long[masks.length][];
+    for (int i = 0; i < masks.length; i++) copy[i] = masks[i].clone();
+    return copy;
+  }
+
+  /**
+   * Returns the cached placement masks, recomputing them if the board has changed
+   *
+   * @return the placement masks, which must not be modified
+   */
+  final long[][] placementMasks() {
+    if (placeableVersion != version) {
+      placeable = engine.placementMasks(frontier);
+      placeableVersion = version;
+    }
+    return placeable;
   }
 
   /**
@@ -346,69 +659,140 @@ public class Board {
    * @return a set containing all destroyable positions
    */
   public final Set<Position> getDestroyable() {
+    long[] cards = engine.occupied();
+    for (int w = 0; w < cards.length; w++) cards[w] &= ~specials[w];
     Set<Position> destroyable = new HashSet<>();
-    for (int x = 0; x < width; ++x) {
-      for (int y = 0; y < height; ++y) {
-        Position p = new Position(x, y);
-        if (isDestroyable(p)) destroyable.add(p);
-      }
+    for (int i = BitBoard.nextSetBit(cards, 0); i >= 0; i = BitBoard.nextSetBit(cards, i + 1)) {
+      destroyable.add(grid.position(i));
     }
     return destroyable;
   }
 
   /**
-   * Checks the touching sides of the specified path card on the specified target
+   * Checks the touching sides of the specified card orientation on the specified target.
+   * The target's neighbour signature is probed in the precomputed {@link SideCompatibility} table
    *
-   * @param card   the checked path card
-   * @param target the target position
+   * @param orientation the checked card orientation
+   * @param target      the packed target position
    * @return a boolean representing a card's placeability
    */
-  private boolean checkTouchingSides(PathCard card, Position target) {
-    System.out.println(card);
-    // Check target is not null
-    if (target == null) return false;
-    // Check if target is in board
-    if (!isInBoard(target)) return false;
-    // Check touching sides
-    if (
-      isInBoard(target.top())
-      && cellAt(target.top()).bottomSide() != Cell.Side.EMPTY
-      && cellAt(target.top()).bottomSide().val() != card.topSide().val()
-      && cellAt(target.top()).bottomSide().val() + card.topSide().val() < 0
-    ) {
-      System.out.printf("cell(bottom: %s) vs card(top: %s)\n", cellAt(target.top()).bottomSide(), card.topSide());
-      return false;
-    }
-    if (
-      isInBoard(target.right())
-      && cellAt(target.right()).leftSide() != Cell.Side.EMPTY
-      && cellAt(target.right()).leftSide().val() != card.rightSide().val()
-      && cellAt(target.right()).leftSide().val() + card.rightSide().val() < 0
-    ) {
-      System.out.printf("cell(left: %s) vs card(right: %s)\n", cellAt(target.right()).leftSide(), card.rightSide());
-      return false;
+  private boolean checkTouchingSides(int orientation, int target) {
+    return SideCompatibility.accepts(orientation, engine.signature(target));
+  }
+
+  /**
+   * Returns the distance field value of the specified <code>(x, y)</code> position: the minimum
+   * number of cards that must be placed for a card on <code>(x, y)</code> to join the connected
+   * network. Reachable cells containing a card are at distance <code>0</code>, frontier cells at
+   * <code>1</code>, and cells that cannot be reached through empty cells at <code>-1</code>.
+   * <p>
+   * The field is an optimistic estimate: it only walks through empty cells, and ignores the side
+   * constraints of the cards that would be placed.
+   * </p>
+   *
+   * @param x the x position
+   * @param y the y position
+   * @return the distance, or <code>-1</code> if out of bounds or unreachable
+   */
+  public final int distanceAt(int x, int y) {
+    if (!isInBoard(x, y)) return -1;
+    updateDistances();
+    return distances[grid.pack(x, y)];
+  }
+
+  /**
+   * Returns the minimum number of cards that must be placed to connect the network to the
+   * specified goal, estimated with the distance field
+   *
+   * @param goal the goal position
+   * @return the distance, <code>0</code> if the goal is reached, or <code>-1</code> if it cannot be reached
+   * @see Board#distanceAt(int, int)
+   */
+  public final int goalDistance(GoalPosition goal) {
+    updateDistances();
+    return goalDistances[goal.ordinal()];
+  }
+
+  /**
+   * Returns what {@link Board#goalDistance(GoalPosition)} would be after placing a path card of the
+   * specified type and rotation on <code>(x, y)</code>. The board itself is left unchanged.
+   * <p>
+   * The query runs a breadth-first search from the hypothetical network on reusable scratch
+   * masks, so it does not allocate. On the default board every mask is a single word.
+   * </p>
+   *
+   * @param type    the path type
+   * @param rotated <code>true</code> if the card is rotated
+   * @param x       the target x position
+   * @param y       the target y position
+   * @param goal    the goal position
+   * @return the distance after the placement, or <code>-1</code> if the card is not placeable there
+   *         or the goal cannot be reached
+   */
+  public final int goalDistanceAfter(PathCard.Type type, boolean rotated, int x, int y, GoalPosition goal) {
+    if (!isCardPlaceableAt(type, rotated, x, y)) return -1;
+    int i = grid.pack(x, y);
+    Position target = goalPosition(goal);
+    if (BitBoard.test(reachable, target.packed())) return 0;
+
+    // Only the card's path sides can extend the network
+    System.arraycopy(reachable, 0, whatIf, 0, whatIf.length);
+    engine.extendWith(whatIf, i, OrientedPath.of(type, rotated).pathDirections());
+    if (BitBoard.test(whatIf, target.packed())) return 0;
+
+    long[] empty = engine.empty();
+    for (int w = 0; w < empty.length; w++) {
+      passable[w] = empty[w] & ~specials[w];
+      sources[w] = whatIf[w] & passable[w];
     }
-    if (
-      isInBoard(target.bottom())
-      && cellAt(target.bottom()).topSide() != Cell.Side.EMPTY
-      && cellAt(target.bottom()).topSide().val() != card.bottomSide().val()
-      && cellAt(target.bottom()).topSide().val() + card.bottomSide().val() < 0
-    ) {
-      System.out.printf("cell(top: %s) vs card(bottom: %s)\n", cellAt(target.bottom()).topSide(), card.bottomSide());
-      return false;
+    BitBoard.clear(passable, i);
+    BitBoard.clear(sources, i);
+    return engine.distance(sources, passable, goalNeighbours[goal.ordinal()]);
+  }
+
+  /**
+   * Recomputes the distance field if the board has changed since it was last computed.
+   * The field is rebuilt with a bit-parallel breadth-first search from the frontier
+   */
+  private void updateDistances() {
+    if (distanceVersion == version) return;
+    long[] empty = engine.empty();
+    for (int w = 0; w < empty.length; w++) passable[w] = empty[w] & ~specials[w];
+    engine.distances(frontier, passable, distances);
+    for (int i = BitBoard.nextSetBit(reachable, 0); i >= 0; i = BitBoard.nextSetBit(reachable, i + 1)) {
+      if (!BitBoard.test(frontier, i)) distances[i] = 0;
     }
-    if (
-      isInBoard(target.left())
-      && cellAt(target.left()).rightSide() != Cell.Side.EMPTY
-      && cellAt(target.left()).rightSide().val() != card.leftSide().val()
-      && cellAt(target.left()).rightSide().val() + card.leftSide().val() < 0
-    ) {
-      System.out.printf("cell(right: %s) vs card(left: %s)\n", cellAt(target.left()).rightSide(), card.leftSide());
-      return false;
+
+    for (GoalPosition goal : GoalPosition.values()) {
+      Position target = goalPosition(goal);
+      int best = -1;
+      if (BitBoard.test(reachable, target.packed())) {
+        best = 0;
+      } else {
+        for (int dir = 0; dir < 4; dir++) {
+          int n = grid.neighbour(target.packed(), dir);
+          if (n < 0 || !BitBoard.test(passable, n) || distances[n] < 0) continue;
+          if (best < 0 || distances[n] < best) best = distances[n];
+        }
+      }
+      goalDistances[goal.ordinal()] = best;
     }
+    distanceVersion = version;
+  }
 
-    // Return true as default
-    return true;
+  /**
+   * Builds a mask of the in-board neighbours of the specified goal
+   *
+   * @param target the goal's position
+   * @return the neighbour mask
+   */
+  private long[] goalNeighbours(Position target) {
+    long[] mask = new long[engine.words()];
+    for (int dir = 0; dir < 4; dir++) {
+      int n = grid.neighbour(target.packed(), dir);
+      if (n >= 0) BitBoard.set(mask, n);
+    }
+    return mask;
   }
 
   /**
@@ -416,28 +800,28 @@ public class Board {
    *
    * @return the position of the starting cell
    */
-  public final Position startPosition() { return new Position(0, this.height / 2); }
+  public final Position startPosition() { return start; }
 
   /**
    * Returns a {@link Position} representing the top goal's position
    *
    * @return the position of the top goal
    */
-  public final Position topGoalPosition() { return new Position(this.width - 1, 0); }
+  public final Position topGoalPosition() { return topGoalPos; }
 
   /**
    * Returns a {@link Position} representing the middle goal's position
    *
    * @return the position of the middle goal
    */
-  public final Position middleGoalPosition() { return new Position(this.width - 1, this.height / 2); }
+  public final Position middleGoalPosition() { return middleGoalPos; }
 
   /**
    * Returns a {@link Position} representing the bottom goal's position
    *
    * @return the position of the bottom goal
    */
-  public final Position bottomGoalPosition() { return new Position(this.width - 1, this.height - 1); }
+  public final Position bottomGoalPosition() { return bottomGoalPos; }
 
   /**
    * Returns the cell at a given <code>(x, y)</code> position
@@ -458,8 +842,29 @@ public class Board {
    */
   public final Cell cellAt(Position position) {
     if (position == null) return null;
-    Cell cell = this.cellAt(position.x, position.y);
-    return cell == null ? null : cell.copy();
+    return this.cellAt(position.x, position.y);
+  }
+
+  @Override
+  public final Cell.Side sideAt(int x, int y, int dir) {
+    return cells[x][y].side(dir);
+  }
+
+  @Override
+  public final boolean hasCardAt(int x, int y) {
+    return cells[x][y].hasCard();
+  }
+
+  @Override
+  public final PathCard.Type cardTypeAt(int x, int y) {
+    int orientation = orientations[grid.pack(x, y)];
+    return orientation < 0 ? null : PATH_TYPES[orientation >> 1];
+  }
+
+  @Override
+  public final boolean isRotatedAt(int x, int y) {
+    int orientation = orientations[grid.pack(x, y)];
+    return orientation >= 0 && (orientation & 1) == 1;
   }
 
   /**
@@ -477,6 +882,30 @@ public class Board {
     return clone;
   }
 
+  /**
+   * Returns the mutation version of the board. The version changes every time
+   * a card is placed or removed, so it can be used to invalidate cached queries
+   *
+   * @return the board's version
+   */
+  public final long version() { return version; }
+
+  /**
+   * Returns the Zobrist hash of the board, covering the goal layout and every path card
+   * with its position and rotation. The hash is maintained on every placement and removal
+   *
+   * @return the board's hash
+   * @see Zobrist
+   */
+  public final long hash() { return hash; }
+
+  /**
+   * Returns the table of canonical positions of the board
+   *
+   * @return the board's grid
+   */
+  public final Grid grid() { return grid; }
+
   /**
    * Returns the width of the board
    *
@@ -1,12 +1,9 @@
 package model;
 
 import model.cards.Card;
+import model.cards.OrientedPath;
 import model.cards.PathCard;
 
-import java.util.Arrays;
-import java.util.List;
-import java.util.stream.Collectors;
-
 /** The {@link Cell} class represents a game board cell */
 @SuppressWarnings({"WeakerAccess", "unused"})
 public class Cell implements Cloneable {
@@ -20,6 +17,24 @@ public class Cell implements Cloneable {
     public int val() { return val; }
   }
 
+  /** The shared sides of a cell holding a path card, indexed by {@link OrientedPath#index()} */
+  private static final Side[][] PATH_SIDES = new Side[OrientedPath.COUNT][];
+
+  static {
+    for (OrientedPath path : OrientedPath.values()) {
+      Side[] sides = new Side[4];
+      for (int dir = 0; dir < 4; dir++) {
+        PathCard.Side side = path.side(dir);
+        if (path.cardType() == Card.Type.PATHWAY) {
+          sides[dir] = side == PathCard.Side.PATH ? Side.PATH : Side.ROCK;
+        } else { // DEADEND
+          sides[dir] = side == PathCard.Side.DEADEND ? Side.DEADEND : Side.ROCK;
+        }
+      }
+      PATH_SIDES[path.index()] = sides;
+    }
+  }
+
   /** The x position of the cell */
   private final int x;
   /** The y position of the cell */
@@ -59,17 +74,9 @@ public class Cell implements Cloneable {
    */
   final void placePathCard(PathCard card) {
     PathCard cardCopy = card.copy();
-    List<Side> newSides;
-    if (cardCopy.type() == Card.Type.PATHWAY) {
-      newSides = Arrays.stream(cardCopy.sides())
-        .map(val -> val == PathCard.Side.PATH ? Side.PATH : Side.ROCK)
-        .collect(Collectors.toList());
-    } else { // DEADEND
-      newSides = Arrays.stream(cardCopy.sides())
-        .map(val -> val == PathCard.Side.DEADEND ? Side.DEADEND : Side.ROCK)
-        .collect(Collectors.toList());
-    }
-    this.sides = newSides.toArray(new Side[0]);
+    // The side arrays are shared, and are never modified in place
+    this.sides = PATH_SIDES[cardCopy.orientation().index()];
+    this.card = cardCopy;
   }
 
   /**
@@ -106,6 +113,14 @@ public class Cell implements Cloneable {
    */
   public final Side[] sides() { return this.sides.clone(); }
 
+  /**
+   * Returns the side value in the specified direction
+   *
+   * @param dir the direction, see {@link Grid#TOP}, {@link Grid#RIGHT}, {@link Grid#BOTTOM}, and {@link Grid#LEFT}
+   * @return the side value
+   */
+  public final Side side(int dir) { return sides[dir]; }
+
   /**
    * Returns the top side value
    *
@@ -0,0 +1,207 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * The {@link CellTable} class is the hashed cell store behind {@link SparseBoard}.
+ * <p>
+ * Cells are kept in an open-addressing table keyed by their <code>(x, y)</code>
+ * coordinate packed into a <code>long</code>, so any coordinate can be stored,
+ * including negative ones. A slot is only allocated for a cell once it is touched,
+ * and is never freed, so the table grows with the number of placed cards.
+ * </p>
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+final class CellTable {
+  /** The initial number of slots, a power of two */
+  private static final int INITIAL_CAPACITY = 64;
+
+  /** Packed coordinates, indexed by slot */
+  private long[] keys;
+  /** Cells, indexed by slot, or <code>null</code> for a free slot */
+  private Cell[] cells;
+  /** The orientation of the path card on each cell, or <code>-1</code> if none */
+  private byte[] orientations;
+  /** Bookkeeping flags of each cell */
+  private byte[] flags;
+  /** The number of used slots */
+  private int size;
+
+  /** Creates an empty {@link CellTable} */
+  CellTable() {
+    allocate(INITIAL_CAPACITY);
+  }
+
+  /**
+   * Returns the packed key of the specified <code>(x, y)</code> coordinate
+   *
+   * @param x the x position
+   * @param y the y position
+   * @return the packed key
+   */
+  static long key(int x, int y) { return ((long) x << 32) | (y & 0xffffffffL); }
+
+  /**
+   * Returns the x position of the specified packed key
+   *
+   * @param key the packed key
+   * @return the x position
+   */
+  static int x(long key) { return (int) (key >> 32); }
+
+  /**
+   * Returns the y position of the specified packed key
+   *
+   * @param key the packed key
+   * @return the y position
+   */
+  static int y(long key) { return (int) key; }
+
+  /**
+   * Returns the slot of the cell at <code>(x, y)</code>
+   *
+   * @param x the x position
+   * @param y the y position
+   * @return the slot, or <code>-1</code> if the cell was never touched
+   */
+  int find(int x, int y) {
+    long key = key(x, y);
+    int mask = cells.length - 1;
+    for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+      if (cells[slot] == null) return -1;
+      if (keys[slot] == key) return slot;
+    }
+  }
+
+  /**
+   * Returns the slot of the cell at <code>(x, y)</code>, allocating an empty cell if it
+   * was never touched. Allocating may move every other cell to a different slot
+   *
+   * @param x the x position
+   * @param y the y position
+   * @return the slot
+   */
+  int touch(int x, int y) {
+    int slot = find(x, y);
+    if (slot >= 0) return slot;
+    if ((size + 1) * 2 > cells.length) grow();
+
+    long key = key(x, y);
+    int mask = cells.length - 1;
+    slot = hash(key) & mask;
+    while (cells[slot] != null) slot = (slot + 1) & mask;
+    keys[slot] = key;
+    cells[slot] = new Cell(x, y);
+    orientations[slot] = -1;
+    size++;
+    return slot;
+  }
+
+  /**
+   * Returns the number of slots, used slots and free slots alike
+   *
+   * @return the table's capacity
+   */
+  int capacity() { return cells.length; }
+
+  /**
+   * Returns the number of touched cells
+   *
+   * @return the table's size
+   */
+  int size() { return size; }
+
+  /**
+   * Returns the cell in the specified slot
+   *
+   * @param slot the slot
+   * @return the cell, or <code>null</code> for a free slot
+   */
+  Cell cell(int slot) { return cells[slot]; }
+
+  /**
+   * Returns the packed key of the cell in the specified slot
+   *
+   * @param slot the slot
+   * @return the packed key
+   */
+  long keyAt(int slot) { return keys[slot]; }
+
+  /**
+   * Returns the orientation of the path card in the specified slot
+   *
+   * @param slot the slot
+   * @return the orientation number, or <code>-1</code> if none
+   */
+  int orientation(int slot) { return orientations[slot]; }
+
+  /**
+   * Sets the orientation of the path card in the specified slot
+   *
+   * @param slot        the slot
+   * @param orientation the orientation number, or <code>-1</code> if none
+   */
+  void setOrientation(int slot, int orientation) { orientations[slot] = (byte) orientation; }
+
+  /**
+   * Returns the bookkeeping flags of the cell in the specified slot
+   *
+   * @param slot the slot
+   * @return the flags
+   */
+  int flags(int slot) { return flags[slot]; }
+
+  /**
+   * Sets the bookkeeping flags of the cell in the specified slot
+   *
+   * @param slot  the slot
+   * @param value the flags
+   */
+  void setFlags(int slot, int value) { flags[slot] = (byte) value; }
+
+  /** Clears the bookkeeping flags of every cell */
+  void clearFlags() { Arrays.fill(flags, (byte) 0); }
+
+  /**
+   * Spreads the bits of a packed key over the table
+   *
+   * @param key the packed key
+   * @return the hash
+   */
+  private static int hash(long key) {
+    long h = key * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32));
+  }
+
+  /**
+   * Allocates empty slot arrays of the specified capacity
+   *
+   * @param capacity the number of slots
+   */
+  private void allocate(int capacity) {
+    keys = new long[capacity];
+    cells = new Cell[capacity];
+    orientations = new byte[capacity];
+    flags = new byte[capacity];
+  }
+
+  /** Doubles the capacity of the table, rehashing every cell */
+  private void grow() {
+    long[] oldKeys = keys;
+    Cell[] oldCells = cells;
+    byte[] oldOrientations = orientations;
+    byte[] oldFlags = flags;
+    allocate(oldCells.length * 2);
+
+    int mask = cells.length - 1;
+    for (int i = 0; i < oldCells.length; i++) {
+      if (oldCells[i] == null) continue;
+      int slot = hash(oldKeys[i]) & mask;
+      while (cells[slot] != null) slot = (slot + 1) & mask;
+      keys[slot] = oldKeys[i];
+      cells[slot] = oldCells[i];
+      orientations[slot] = oldOrientations[i];
+      flags[slot] = oldFlags[i];
+    }
+  }
+}
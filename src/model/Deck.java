@@ -0,0 +1,194 @@
+package model;
+
+import model.cards.Card;
+import model.cards.PathCard;
+
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The {@link Deck} class represents the draw pile of a round.
+ * <p>
+ * The pile is a <code>short</code> array of card ids with a cursor on its top card, so
+ * drawing, returning a card, and shuffling neither allocate nor lock. Card objects are
+ * created once per deck from a table of card codes, see {@link PackedState#cardCode(Card)},
+ * and are looked up by id. A deck can be reused for every round with
+ * {@link Deck#reset()} followed by a shuffle.
+ * </p>
+ * <p>
+ * Path cards carry a mutable rotation, so a deck's card objects must not be shared with
+ * another running game.
+ * </p>
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public final class Deck {
+  /** The card codes of the full deck, bottom card first */
+  private final int[] codes;
+  /** The cards of the deck, indexed by id */
+  private final Card[] cards;
+  /** The card ids of the pile, bottom card first */
+  private final short[] pile;
+  /** The number of cards left in the pile */
+  private int size;
+
+  /**
+   * Creates a {@link Deck} object holding every card of the specified codes, bottom card first
+   *
+   * @param codes the card codes
+   */
+  Deck(int[] codes) {
+    this(codes, codes.length);
+  }
+
+  /**
+   * Creates a {@link Deck} object knowing every card of the specified codes, whose pile
+   * holds only the first <code>size</code> cards. The remaining cards are in play elsewhere,
+   * and may be returned to the pile
+   *
+   * @param codes the card codes, bottom card first
+   * @param size  the number of cards in the pile
+   */
+  Deck(int[] codes, int size) {
+    int maxId = 0;
+    for (int code : codes) maxId = Math.max(maxId, PackedState.id(code));
+    this.codes = codes.clone();
+    this.cards = new Card[maxId + 1];
+    for (int code : codes) this.cards[PackedState.id(code)] = PackedState.card(code);
+    this.pile = new short[codes.length];
+    this.reset();
+    this.size = size;
+  }
+
+  /**
+   * Puts every card of the deck back into the pile, in their original order, and
+   * resets the rotation of the path cards
+   */
+  public final void reset() {
+    for (int i = 0; i < codes.length; i++) pile[i] = (short) PackedState.id(codes[i]);
+    for (Card card : cards) {
+      if (card instanceof PathCard) ((PathCard) card).setRotated(false);
+    }
+    this.size = codes.length;
+  }
+
+  /**
+   * Shuffles the pile in place
+   */
+  public final void shuffle() {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    for (int i = size; i > 1; i--) swap(i - 1, random.nextInt(i));
+  }
+
+  /**
+   * Shuffles the pile in place with the specified random source. The permutation is the
+   * same as {@link java.util.Collections#shuffle(java.util.List, Random)} on a list of the pile
+   *
+   * @param random the random source
+   */
+  public final void shuffle(Random random) {
+    for (int i = size; i > 1; i--) swap(i - 1, random.nextInt(i));
+  }
+
+  /**
+   * Shuffles the pile in place with the specified random stream
+   *
+   * @param random the random stream
+   */
+  public final void shuffle(SplittableRandom random) {
+    for (int i = size; i > 1; i--) swap(i - 1, random.nextInt(i));
+  }
+
+  /**
+   * Draws the top card of the pile
+   *
+   * @return the top card, or <code>null</code> if the pile is empty
+   */
+  public final Card draw() {
+    return size == 0 ? null : cards[pile[--size]];
+  }
+
+  /**
+   * Returns the top card of the pile without drawing it
+   *
+   * @return the top card, or <code>null</code> if the pile is empty
+   */
+  public final Card peek() {
+    return size == 0 ? null : cards[pile[size - 1]];
+  }
+
+  /**
+   * Returns a card to the top of the pile, used to undo a draw
+   *
+   * @param card the card, which must belong to the deck
+   */
+  final void push(Card card) {
+    this.pile[size++] = (short) card.id();
+  }
+
+  /**
+   * Returns the card of the pile at the specified index
+   *
+   * @param index the card's index, where <code>0</code> is the bottom card
+   * @return the card
+   */
+  public final Card cardAt(int index) {
+    return cards[pile[index]];
+  }
+
+  /**
+   * Removes the card of the pile at the specified index
+   *
+   * @param index the card's index, where <code>0</code> is the bottom card
+   * @return the removed card
+   */
+  final Card removeAt(int index) {
+    Card card = cards[pile[index]];
+    System.arraycopy(pile, index + 1, pile, index, size - index - 1);
+    size--;
+    return card;
+  }
+
+  /**
+   * Returns the card of the specified id
+   *
+   * @param id the card's id
+   * @return the card, or <code>null</code> if the deck has no such card
+   */
+  public final Card card(int id) {
+    return id >= 0 && id < cards.length ? cards[id] : null;
+  }
+
+  /**
+   * Returns the number of cards left in the pile
+   *
+   * @return the pile size
+   */
+  public final int size() { return size; }
+
+  /**
+   * Checks if the pile is empty
+   *
+   * @return <code>true</code> if no card is left
+   */
+  public final boolean isEmpty() { return size == 0; }
+
+  /**
+   * Returns the number of cards of the full deck
+   *
+   * @return the number of cards
+   */
+  public final int capacity() { return codes.length; }
+
+  /**
+   * Swaps two cards of the pile
+   *
+   * @param i the first index
+   * @param j the second index
+   */
+  private void swap(int i, int j) {
+    short id = pile[i];
+    pile[i] = pile[j];
+    pile[j] = id;
+  }
+}
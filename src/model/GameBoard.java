@@ -0,0 +1,237 @@
+package model;
+
+import model.cards.OrientedPath;
+import model.cards.PathCard;
+
+import java.util.Set;
+
+/**
+ * The {@link GameBoard} class is the base of every board a game can be played on.
+ * <p>
+ * A round is played either on a {@link Board}, whose cells span a fixed bounding box, or on
+ * a {@link SparseBoard}, which grows with the maze and only stores the cells it touches, see
+ * {@link GameLogicController#setSparseBoard(boolean)}. The game logic, the move generator,
+ * and the packed states only go through the operations declared here.
+ * </p>
+ * <p>
+ * Cells are enumerated through cell indices, whose meaning depends on the board: the
+ * packed coordinate of a dense board, or the slot of a sparse board's cell store. An index
+ * is only valid until the board is modified, and is turned back into a position with
+ * {@link GameBoard#cellX(int)} and {@link GameBoard#cellY(int)}.
+ * </p>
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public abstract class GameBoard implements ReadOnlyBoard {
+  /**
+   * Creates a {@link GameBoard} object. Only the boards of the model package can be played on
+   */
+  GameBoard() {}
+
+  /**
+   * Initialize the board by placing goal cards
+   *
+   * @param topGoal the top goal
+   * @param midGoal the middle goal
+   * @param botGoal the bottom goal
+   */
+  abstract void initialize(GoalType topGoal, GoalType midGoal, GoalType botGoal);
+
+  /**
+   * Puts a path card on the specified empty <code>(x, y)</code> position without checking the
+   * placement rules. Used to place a legal card, and to restore a removed card when undoing a move
+   *
+   * @param card the path card to be put
+   * @param x    the x position
+   * @param y    the y position
+   */
+  abstract void putPathCardAt(PathCard card, int x, int y);
+
+  /**
+   * Removes the path card from the specified <code>(x, y)</code> position without checking
+   * the rules. Used to remove a legal target, and to take back a placed card when undoing a move
+   *
+   * @param x the x position
+   * @param y the y position
+   */
+  abstract void clearCardAt(int x, int y);
+
+  /**
+   * Returns the path card placed at the specified <code>(x, y)</code> position
+   *
+   * @param x the x position
+   * @param y the y position
+   * @return the path card, or <code>null</code> if none
+   */
+  abstract PathCard pathCardAt(int x, int y);
+
+  /**
+   * Returns the goal type on the specified goal position
+   *
+   * @param goalPosition the goal position
+   * @return the goal type
+   */
+  abstract GoalType peekGoal(Board.GoalPosition goalPosition);
+
+  /**
+   * Finds the next cell a path card of the specified orientation can legally be placed on
+   *
+   * @param path the oriented path
+   * @param from the first cell index to be checked
+   * @return the cell index, or <code>-1</code> if there is none
+   */
+  abstract int nextPlaceable(OrientedPath path, int from);
+
+  /**
+   * Finds the next path card a rockfall may remove
+   *
+   * @param from the first cell index to be checked
+   * @return the cell index, or <code>-1</code> if there is none
+   */
+  abstract int nextRemovable(int from);
+
+  /**
+   * Returns the x position of the specified cell index
+   *
+   * @param cell the cell index
+   * @return the x position
+   */
+  abstract int cellX(int cell);
+
+  /**
+   * Returns the y position of the specified cell index
+   *
+   * @param cell the cell index
+   * @return the y position
+   */
+  abstract int cellY(int cell);
+
+  /**
+   * Checks whether the gold card is reached
+   *
+   * @return a boolean indicating if the gold is reached
+   */
+  public abstract boolean isGoldReached();
+
+  /**
+   * Returns the goals reachable from the starting cell. The set is maintained on every
+   * placement and removal, so it can be polled after each move
+   *
+   * @return the reached goals, as a bit set of {@link Board.GoalPosition} ordinals
+   */
+  public abstract int reachedGoals();
+
+  /**
+   * Checks whether the specified goal is reachable from the starting cell
+   *
+   * @param position the goal position
+   * @return <code>true</code> if the goal is reached
+   */
+  public final boolean isGoalReached(Board.GoalPosition position) {
+    return (reachedGoals() & (1 << position.ordinal())) != 0;
+  }
+
+  /**
+   * Validates the placement of the specified oriented path on the specified <code>(x, y)</code>
+   * position, without throwing or allocating
+   *
+   * @param path the oriented path
+   * @param x    the target x position
+   * @param y    the target y position
+   * @return {@link MoveStatus#OK} if the path is placeable, or the reason it is not
+   */
+  public abstract MoveStatus placementStatus(OrientedPath path, int x, int y);
+
+  /**
+   * Validates the removal of the card on the specified <code>(x, y)</code> position,
+   * without throwing or allocating
+   *
+   * @param x the targeted x position
+   * @param y the targeted y position
+   * @return {@link MoveStatus#OK} if the card is destroyable, or the reason it is not
+   */
+  public abstract MoveStatus removalStatus(int x, int y);
+
+  /**
+   * Checks whether the specified path card is placeable at the specified
+   * <code>(x, y)</code> position
+   *
+   * @param card the checked path card
+   * @param x    the target x position
+   * @param y    the target y position
+   * @return a boolean representing a card's placeability
+   */
+  public final boolean isCardPlaceableAt(PathCard card, int x, int y) {
+    return this.isCardPlaceableAt(card.pathType(), card.rotated(), x, y);
+  }
+
+  /**
+   * Checks whether the specified path card is placeable at the specified target
+   *
+   * @param card   the checked path card
+   * @param target the target position
+   * @return a boolean representing a card's placeability
+   */
+  public final boolean isCardPlaceableAt(PathCard card, Position target) {
+    // Check target is not null
+    if (target == null) return false;
+
+    return this.isCardPlaceableAt(card, target.x, target.y);
+  }
+
+  /**
+   * Gets all reachable positions from the starting cell
+   *
+   * @return a set containing all reachable positions
+   */
+  public abstract Set<Position> getReachable();
+
+  /**
+   * Gets the placement frontier: every empty cell adjacent to a reachable path side.
+   * Path cards can only ever be placed on frontier cells
+   *
+   * @return a set containing all frontier positions
+   */
+  public abstract Set<Position> getFrontier();
+
+  /**
+   * Gets all placeable positions of the specified path card
+   *
+   * @param card the path card to be placed
+   * @return a set containing all placeable positions
+   */
+  public final Set<Position> getPlaceable(PathCard card) {
+    return this.getPlaceable(card.orientation());
+  }
+
+  /**
+   * Gets all placeable positions of the specified oriented path
+   *
+   * @param path the oriented path to be placed
+   * @return a set containing all placeable positions
+   */
+  public abstract Set<Position> getPlaceable(OrientedPath path);
+
+  /**
+   * Gets all destroyable path cards on the board
+   *
+   * @return a set containing all destroyable positions
+   */
+  public abstract Set<Position> getDestroyable();
+
+  /**
+   * Returns the position of the specified goal
+   *
+   * @param goal the goal
+   * @return the goal's position
+   */
+  final Position goalPosition(Board.GoalPosition goal) {
+    switch (goal) {
+      case TOP:
+        return topGoalPosition();
+      case MIDDLE:
+        return middleGoalPosition();
+      default:
+        return bottomGoalPosition();
+    }
+  }
+}
@@ -3,10 +3,12 @@ package model;
 import ai.AI;
 import model.cards.BoardActionCard;
 import model.cards.Card;
+import model.cards.OrientedPath;
 import model.cards.PathCard;
 import model.cards.PlayerActionCard;
 
 import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * The {@link GameLogicController} class contains all the necessary logic
@@ -18,15 +20,22 @@ public class GameLogicController {
   private static final int MIN_PLAYER = 4;
   /** The default maximum players allowed in the game rules */
   private static final int MAX_PLAYER = 10;
-  /** The default card deck amount */
+  /** The default time an AI is given to make a decision, in milliseconds */
+  public static final long DEFAULT_DECISION_TIMEOUT = 5000;
+  /** Cached tools, indexed by ordinal */
+  private static final Tool[] TOOLS = Tool.values();
+  /** Cached goal positions, indexed by ordinal */
+  private static final Board.GoalPosition[] GOAL_POSITIONS = Board.GoalPosition.values();
+  /**
+   * The default card deck amount. Changes are picked up by the decks generated afterwards,
+   * and by the next round of every game
+   */
   public static HashMap<String, Integer> CARD_COMPOSITION = new HashMap<>();
 
-  /** Marks the top goal as opened */
-  private boolean topGoalOpened;
-  /** Marks the top goal as opened */
-  private boolean middleGoalOpened;
-  /** Marks the top goal as opened */
-  private boolean bottomGoalOpened;
+  /** The opened goals, as a bit set of {@link Board.GoalPosition} ordinals */
+  private int openedGoals;
+  /** Marks that the move of the current turn placed a path card */
+  private boolean pathPlaced;
 
   /* initialize {@link GameState#CARD_COMPOSITION} */
   static {
@@ -59,8 +68,35 @@ public class GameLogicController {
     CARD_COMPOSITION.put(PlayerActionCard.Type.REPAIR_LANTERN_PICKAXE.name(), 1);
   }
 
+  /** The card codes of the default deck, bottom card first, see {@link PackedState#cardCode(Card)} */
+  private static int[] defaultDeck;
+  /** The card composition the default deck was composed from */
+  private static Map<String, Integer> defaultComposition;
+
   /** The controlled game state */
   private final GameState game;
+  /** The card codes of the deck */
+  private int[] deckCodes = defaultDeck();
+  /** The deck, reused for every round while the card composition is unchanged */
+  private Deck deck = new Deck(deckCodes);
+  /** The seed of the game session */
+  private long seed;
+  /** The session's random generator, split once for every round */
+  private SplittableRandom random;
+  /** The random stream of the current round's starting player */
+  private SplittableRandom startRandom;
+  /** The time an AI is given to make a decision, in milliseconds */
+  private long decisionTimeout = DEFAULT_DECISION_TIMEOUT;
+  /** The time control of the AI decisions, or <code>null</code> for the fixed decision timeout */
+  private TimeControl timeControl;
+  /** The players' time banks, in nanoseconds, indexed by player */
+  private long[] timeBanks;
+  /** The width of the boards created for each round */
+  private int boardWidth = Board.DEFAULT_WIDTH;
+  /** The height of the boards created for each round */
+  private int boardHeight = Board.DEFAULT_HEIGHT;
+  /** Whether each round is played on a growable {@link SparseBoard} */
+  private boolean sparseBoard;
   /** The non player observers of the game */
   private ArrayList<GameObserver> nonPlayerObservers;
 
@@ -84,8 +120,162 @@ public class GameLogicController {
 
     game.setPlayers(playerList);
     this.nonPlayerObservers = new ArrayList<>();
+    this.seed = ThreadLocalRandom.current().nextLong();
+    this.random = new SplittableRandom(seed);
+    this.timeBanks = new long[players.length];
+  }
+
+  /**
+   * Sets the seed of the game session. Every round derives independent random streams for
+   * its goals, roles, deck, starting player, and each player's {@link Player#random()} source
+   * from the session's generator, so a session with the same seed and players deals the same
+   * rounds in the same order
+   *
+   * @param seed the seed
+   * @throws GameException when game is running
+   */
+  public final void setSeed(long seed) throws GameException {
+    if (game.started()) {
+      throw new GameException("Cannot reseed a running game");
+    }
+    this.seed = seed;
+    this.random = new SplittableRandom(seed);
+    this.startRandom = null;
+  }
+
+  /**
+   * Returns the seed of the game session, which can be used to replay the session.
+   * Unless set with {@link GameLogicController#setSeed(long)}, the seed is chosen at random
+   *
+   * @return the seed
+   */
+  public final long seed() { return seed; }
+
+  /**
+   * Sets the time an AI is given to make a decision. The time is counted in CPU time of the
+   * deciding thread where it can be measured, see {@link ai.DecisionExecutor}. A timeout of
+   * <code>0</code> or less lets trusted AIs decide directly on the game's thread, without any timeout
+   *
+   * @param millis the timeout in milliseconds
+   */
+  public final void setDecisionTimeout(long millis) { this.decisionTimeout = millis; }
+
+  /**
+   * Returns the time an AI is given to make a decision
+   *
+   * @return the timeout in milliseconds, or <code>0</code> or less if there is none
+   */
+  public final long decisionTimeout() { return decisionTimeout; }
+
+  /**
+   * Sets the time control of the AI decisions, which replaces the fixed decision timeout.
+   * Every player's time bank is refilled at the start of each round
+   *
+   * @param timeControl the time control, or <code>null</code> to use the decision timeout
+   * @throws GameException when game is running
+   */
+  public final void setTimeControl(TimeControl timeControl) throws GameException {
+    if (game.started()) {
+      throw new GameException("Cannot change the time control of a running game");
+    }
+    this.timeControl = timeControl;
+    this.refillTimeBanks();
+  }
+
+  /**
+   * Returns the time control of the AI decisions
+   *
+   * @return the time control, or <code>null</code> if decisions use the decision timeout
+   */
+  public final TimeControl timeControl() { return timeControl; }
+
+  /**
+   * Returns the time left in the specified player's time bank
+   *
+   * @param playerIndex the player index
+   * @return the time left in milliseconds, or <code>-1</code> if there is no time control
+   */
+  public final long timeBank(int playerIndex) {
+    return timeControl == null ? -1 : Math.max(0, timeBanks[playerIndex] / 1_000_000L);
+  }
+
+  /**
+   * Returns the time the specified player is given for its next decision: the whole time
+   * bank under a time control, or the decision timeout otherwise. An empty bank still
+   * gives a millisecond, so the decision times out rather than running without a timeout
+   *
+   * @param playerIndex the player index
+   * @return the budget in milliseconds, or <code>0</code> or less if there is no timeout
+   */
+  public final long decisionBudget(int playerIndex) {
+    if (timeControl == null) return decisionTimeout;
+    return Math.max(1, timeBanks[playerIndex] / 1_000_000L);
   }
 
+  /**
+   * Charges a decision to the specified player's time bank, then adds the increment.
+   * Does nothing without a time control
+   *
+   * @param playerIndex the player index
+   * @param nanos       the time the decision took, in nanoseconds
+   */
+  public final void chargeDecision(int playerIndex, long nanos) {
+    if (timeControl == null) return;
+    long bank = Math.max(0, timeBanks[playerIndex] - nanos);
+    timeBanks[playerIndex] = bank + timeControl.incrementMillis() * 1_000_000L;
+  }
+
+  /**
+   * Refills every player's time bank to the initial time of the time control
+   */
+  private void refillTimeBanks() {
+    long initial = timeControl == null ? 0 : timeControl.initialMillis() * 1_000_000L;
+    Arrays.fill(timeBanks, initial);
+  }
+
+  /**
+   * Sets the dimension of the board used by the next rounds, for variant rules
+   *
+   * @param width  the board width
+   * @param height the board height
+   * @throws GameException when game is running, or the dimension is too small or too large
+   */
+  public final void setBoardSize(int width, int height) throws GameException {
+    if (game.started()) {
+      throw new GameException("Cannot resize the board of a running game");
+    }
+    if (width < Board.MIN_WIDTH || height < Board.MIN_HEIGHT
+        || width > PackedMove.MAX_POSITION + 1 || height > PackedMove.MAX_POSITION + 1) {
+      String msgFormat = "Invalid board size %dx%d, expected between %dx%d and %dx%d";
+      throw new GameException(msgFormat, width, height, Board.MIN_WIDTH, Board.MIN_HEIGHT,
+                              PackedMove.MAX_POSITION + 1, PackedMove.MAX_POSITION + 1);
+    }
+    this.boardWidth = width;
+    this.boardHeight = height;
+  }
+
+  /**
+   * Sets whether the next rounds are played on a growable {@link SparseBoard}, whose maze can
+   * grow past the start and goal cards, instead of a {@link Board} bounded by the board size.
+   * The board size then only sets the layout of the start and goal cards
+   *
+   * @param sparse <code>true</code> to play on a sparse board
+   * @throws GameException when game is running
+   */
+  public final void setSparseBoard(boolean sparse) throws GameException {
+    if (game.started()) {
+      throw new GameException("Cannot change the board of a running game");
+    }
+    this.sparseBoard = sparse;
+  }
+
+  /**
+   * Checks whether the rounds are played on a growable {@link SparseBoard}
+   *
+   * @return <code>true</code> if the rounds are played on a sparse board
+   */
+  public final boolean sparseBoard() { return sparseBoard; }
+
   /**
    * Initializes a game round
    *
@@ -96,10 +286,24 @@ public class GameLogicController {
       throw new GameException("Cannot reinitialize a running game");
     }
 
+    // Reset the previous round's flags
+    game.setFinished(false);
+    openedGoals = 0;
+    pathPlaced = false;
+    refillTimeBanks();
+
+    // Derive the round's random streams
+    SplittableRandom round = random.split();
+    SplittableRandom goalRandom = round.split();
+    SplittableRandom roleRandom = round.split();
+    SplittableRandom deckRandom = round.split();
+    this.startRandom = round.split();
+    SplittableRandom playerRandom = round.split();
+
     // Create new board and initialize goals
-    game.setBoard(new Board());
+    game.setBoard(sparseBoard ? new SparseBoard(boardWidth, boardHeight) : new Board(boardWidth, boardHeight));
     List<GoalType> goals = Arrays.asList(GoalType.GOLD, GoalType.ROCK, GoalType.ROCK);
-    Collections.shuffle(goals);
+    shuffle(goals, goalRandom);
     game.board().initialize(goals.get(0), goals.get(1), goals.get(2));
 
     // Shuffle roles
@@ -108,11 +312,16 @@ public class GameLogicController {
     ArrayList<Player.Role> roles = new ArrayList<>();
     for (int i = 0; i < numSaboteurs; ++i) roles.add(Player.Role.SABOTEUR);
     for (int i = 0; i < numPlayers - numSaboteurs; ++i) roles.add(Player.Role.GOLD_MINER);
-    Collections.shuffle(roles);
+    shuffle(roles, roleRandom);
 
-    // Shuffle cards
-    Stack<Card> deck = generateDeck();
-    Collections.shuffle(deck);
+    // Shuffle cards, with a new deck if the card composition has changed
+    int[] codes = defaultDeck();
+    if (codes != deckCodes) {
+      deckCodes = codes;
+      deck = new Deck(codes);
+    }
+    deck.reset();
+    deck.shuffle(deckRandom);
     game.setDeck(deck);
 
     // Distribute roles and cards among players
@@ -121,9 +330,14 @@ public class GameLogicController {
     for (int i = 0; i < numPlayers; ++i)
       cardDistribution.add(new ArrayList<>());
     for (int i = 0; i < cardsPerPlayer; ++i)
-      cardDistribution.forEach(h -> h.add(deck.pop()));
+      cardDistribution.forEach(h -> h.add(deck.draw()));
     for (int i = 0; i < numPlayers; ++i)
       game.playerAt(i).initialize(i, roles.get(i), cardDistribution.get(i));
+    game.countHandCards();
+
+    // Reseed the players' random sources, so the AIs replay with the session
+    for (int i = 0; i < numPlayers; ++i)
+      game.playerAt(i).reseed(playerRandom.nextLong());
 
     game.players().forEach(p -> {
       if(p instanceof AI) ((AI) p).initialize();
@@ -131,44 +345,78 @@ public class GameLogicController {
   }
 
   /**
-   * Starts the game and randomizes the starting player
+   * Starts the game and randomizes the starting player, then prompts the starting player
    *
    * @throws GameException when game already running
    */
   public final void startRound() throws GameException {
+    this.beginRound();
+    currentPlayer().notifyPromptMovement();
+  }
+
+  /**
+   * Starts the game and randomizes the starting player, without prompting the starting
+   * player. Used by drivers that ask for the moves themselves, see {@link TurnScheduler}
+   *
+   * @throws GameException when game already running
+   */
+  public final void beginRound() throws GameException {
     if (game.started()) {
       throw new GameException("Game already started");
     }
     int numPlayers = game.numPlayers();
-    game.setCurrentPlayerIndex(new Random().nextInt(numPlayers));
+    if (startRandom == null) startRandom = random.split();
+    game.setCurrentPlayerIndex(startRandom.nextInt(numPlayers));
     game.setStarted(true);
     broadcastGameStarted();
     broadcastNextTurn();
-    currentPlayer().notifyPromptMovement();
   }
 
   /**
-   * Finalize the current turn
+   * Shuffles the specified list in place with the specified random stream
+   *
+   * @param list   the list to be shuffled
+   * @param random the random stream
+   */
+  private static <T> void shuffle(List<T> list, SplittableRandom random) {
+    for (int i = list.size(); i > 1; i--) Collections.swap(list, i - 1, random.nextInt(i));
+  }
+
+  /**
+   * Finalize the current turn, then prompts the next player
    */
   public final void finalizeTurn() {
-    Player.Role winner = this.checkEndGame();
-    if (board().isReachable(board().topGoalPosition()) && !topGoalOpened) {
-      broadcastGoalOpened(Board.GoalPosition.TOP);
-      topGoalOpened = true;
-    }
-    if (board().isReachable(board().middleGoalPosition()) && !middleGoalOpened) {
-      broadcastGoalOpened(Board.GoalPosition.MIDDLE);
-      middleGoalOpened = true;
-    }
-    if (board().isReachable(board().bottomGoalPosition()) && !bottomGoalOpened) {
-      broadcastGoalOpened(Board.GoalPosition.BOTTOM);
-      bottomGoalOpened = true;
+    if (this.advanceTurn()) currentPlayer().notifyPromptMovement();
+  }
+
+  /**
+   * Finalize the current turn and passes it to the next player, without prompting the
+   * next player. Used by drivers that ask for the moves themselves, see {@link TurnScheduler}.
+   * <p>
+   * Only a path placement can reach a goal, so the goals are only checked after one, from
+   * the reached goals the board maintains. The end of the cards is detected from the
+   * number of cards in hands, which every move keeps up to date.
+   * </p>
+   *
+   * @return <code>true</code> if the game goes on, or <code>false</code> if it is finished
+   */
+  public final boolean advanceTurn() {
+    Player.Role winner = null;
+    if (pathPlaced) {
+      pathPlaced = false;
+      if (board().isGoldReached()) winner = Player.Role.GOLD_MINER;
+      int opened = board().reachedGoals() & ~openedGoals;
+      openedGoals |= opened;
+      for (Board.GoalPosition position : GOAL_POSITIONS) {
+        if ((opened & (1 << position.ordinal())) != 0) broadcastGoalOpened(position);
+      }
     }
+    if (winner == null && game.deck().isEmpty() && game.handCards() == 0) winner = Player.Role.SABOTEUR;
     if (winner != null) {
       game.setFinished(true);
       game.setStarted(false);
       broadcastGameFinished(winner);
-      return;
+      return false;
     }
     currentPlayer().hand().forEach(c -> {
       if (c instanceof PathCard) ((PathCard) c).setRotated(false);
@@ -176,7 +424,7 @@ public class GameLogicController {
     game.incrementPlayerIndex();
     broadcastStateChanged();
     broadcastNextTurn();
-    currentPlayer().notifyPromptMovement();
+    return true;
   }
 
   /**
@@ -187,152 +435,266 @@ public class GameLogicController {
    */
   public final void playMove(Move move) throws GameException {
     if (move == null) return;
-    if (move.type() == Move.Type.DISCARD) {
-      Card card = discardCard(move.playerIndex(), move.handIndex(), true);
-      broadcastPlayerMove(move, card);
+    UndoRecord record = play(game, move);
+    // Set move card reference
+    move.setCard(record.played().copy());
+    if (move.type() == Move.Type.PLAY_PATH) pathPlaced = true;
+    if (move.type() == Move.Type.PLAY_MAP) {
+      sendGoalType(move.playerIndex(), GOAL_POSITIONS[move.arg(0)]);
     }
-    Card card = playCard(move);
-    broadcastPlayerMove(move, card);
+    broadcastPlayerMove(move, record.drawn());
   }
 
   /**
-   * Discards a card from the specified player and replaces the discarded card with a new one
+   * Applies a {@link Move} object to the specified state and passes the turn to the next
+   * player, without notifying any observer. Together with
+   * {@link GameLogicController#undo(GameState, UndoRecord)}, it lets a search walk the game
+   * tree in place: moves are undone in the reverse order they were applied, and each undo
+   * restores the board, the hands, the deck, the tools, and the turn exactly as they were.
+   * <p>
+   * Searches never run on the live game: players search a detached copy of the round,
+   * see {@link Player#searchState(Random)}.
+   * </p>
    *
-   * @param playerIndex the playing player
-   * @param handIndex   the player hand index
-   * @param move        marks whether it is purely the move
-   * @return the new added card
-   * @throws GameException when an invalid discard is invoked
+   * @param state the game state
+   * @param move  the move to be applied
+   * @return the record to undo the move
+   * @throws GameException when an invalid move is applied, in which case the state is unchanged
    */
-  private Card discardCard(int playerIndex, int handIndex, boolean move) throws GameException {
-    // Check if invoker is correct
-    if (playerIndex != game.currentPlayerIndex()) {
-      String name = game.playerAt(playerIndex).name();
-      throw new GameException("It is not %s's turn", name);
-    }
-    // Take and give card from player
-    Player p = game.playerAt(playerIndex);
-    Card discarded = p.takeCardAt(handIndex);
-    if (move) p.addDiscard(discarded);
-    Card card = takeCardFromDeck();
-    p.giveCard(card);
-    return card;
+  public static UndoRecord apply(GameState state, Move move) throws GameException {
+    UndoRecord record = play(state, move);
+    state.incrementPlayerIndex();
+    return record;
   }
 
   /**
-   * Plays a card
+   * Takes back the last move applied with {@link GameLogicController#apply(GameState, Move)}
    *
-   * @param move the move to be played
-   * @return the new card
-   * @throws GameException when an invalid move is applied
+   * @param state  the game state
+   * @param record the record of the move
    */
-  private Card playCard(Move move) throws GameException {
-    int playerIndex = move.playerIndex();
-    int handIndex = move.handIndex();
-    int[] args = move.args();
-    // Check if invoker is correct
-    if (playerIndex != game.currentPlayerIndex()) {
-      String name = game.playerAt(playerIndex).name();
-      throw new GameException("It is not %s's turn", name);
-    }
-    // Get player's card
-    Card card = playerAt(playerIndex).peekCardAt(handIndex);
+  public static void undo(GameState state, UndoRecord record) {
+    Move move = record.move();
+    state.setCurrentPlayerIndex(record.playerIndex());
+    Player p = state.playerAt(move.playerIndex());
+    // Return the drawn card to the deck, then the played card to the hand
+    if (record.drawn() != null) state.deck().push(p.takeLastCard());
+    else state.addHandCards(1);
+    p.insertCardAt(move.handIndex(), record.card());
     switch (move.type()) {
       case PLAY_PATH:
-        if (!(card instanceof PathCard)) {
-          throw new GameException("Cannot create a path with a non path card");
-        }
-        ((PathCard) card).setRotated(args[2] == 1);
-        playPathCard(playerIndex, (PathCard) card, args[0], args[1]);
+        state.board().clearCardAt(move.arg(0), move.arg(1));
         break;
       case PLAY_PLAYER:
-        if (!(card instanceof PlayerActionCard)) {
-          throw new GameException("Cannot block/repair another player with a non player-action card");
+        Player target = state.playerAt(move.arg(0));
+        if (record.card().type() == Card.Type.BLOCK) {
+          target.setSabotaged(((PlayerActionCard) record.card()).effects()[0], false);
+        } else {
+          for (Tool tool : Tool.values()) {
+            if ((record.repaired() & (1 << tool.ordinal())) != 0) target.setSabotaged(tool, true);
+          }
         }
-        playPlayerActionCard(playerIndex, (PlayerActionCard) card, args[0]);
-        break;
-      case PLAY_MAP:
-        if (card.type() != Card.Type.MAP) {
-          throw new GameException("Cannot open a goal card with a non map card");
-        }
-        Board.GoalPosition pos = Board.GoalPosition.values()[args[0]];
-        playMapCard(playerIndex, pos);
         break;
       case PLAY_ROCKFALL:
-        if (card.type() != Card.Type.ROCKFALL) {
-          throw new GameException("Cannot destroy a path with a non rockfall card");
-        }
-        playRockfallCard(args[0], args[1]);
+        state.board().putPathCardAt(record.removed(), move.arg(0), move.arg(1));
         break;
       case DISCARD:
+        p.removeLastDiscard();
         break;
       default:
-        throw new GameException("Unknown move type");
+        break;
     }
-    // Set move card reference
-    move.setCard(card.copy());
-    // Discard the played card
-    return discardCard(playerIndex, handIndex, false);
   }
 
   /**
-   * Places a path card on the specified position
+   * Validates a {@link Move} object against the current game, without throwing or allocating
+   *
+   * @param move the move to be validated
+   * @return {@link MoveStatus#OK} if the move is allowed, or the reason it is not
+   */
+  public final MoveStatus validate(Move move) { return validate(game, move); }
+
+  /**
+   * Fills the specified buffer with every legal move of the current player, see
+   * {@link MoveGenerator#generate(GameState, MoveBuffer)}
    *
-   * @param playerIndex the playing player
-   * @param card        the path card to be placed
-   * @param x           the target x position
-   * @param y           the target y position
-   * @throws GameException when an invalid move is played
+   * @param moves the buffer receiving the packed moves
+   * @return the number of legal moves
    */
-  private void playPathCard(int playerIndex, PathCard card, int x, int y) throws GameException {
-    Player p = game.playerAt(playerIndex);
-    if (p.isSabotaged()) {
-      String name = p.name();
-      throw new GameException("%s is sabotaged and cannot place a path card", name);
+  public final int legalMoves(MoveBuffer moves) { return MoveGenerator.generate(game, moves); }
+
+  /**
+   * Validates a {@link Move} object against the specified state, without throwing or allocating.
+   * Moves are cheaper to probe this way than by catching the {@link GameException} of an
+   * invalid move
+   *
+   * @param state the game state
+   * @param move  the move to be validated
+   * @return {@link MoveStatus#OK} if the move is allowed, or the reason it is not
+   */
+  public static MoveStatus validate(GameState state, Move move) {
+    if (move == null) return MoveStatus.NO_MOVE;
+    int playerIndex = move.playerIndex();
+    if (playerIndex != state.currentPlayerIndex()) return MoveStatus.NOT_YOUR_TURN;
+    Player p = state.playerAt(playerIndex);
+    int handIndex = move.handIndex();
+    if (handIndex < 0 || handIndex >= p.handSize()) return MoveStatus.INVALID_HAND_INDEX;
+    Card card = p.peekCardAt(handIndex);
+    switch (move.type()) {
+      case PLAY_PATH:
+        if (!(card instanceof PathCard)) return MoveStatus.WRONG_CARD_TYPE;
+        if (p.isSabotaged()) return MoveStatus.SABOTAGED;
+        OrientedPath path = OrientedPath.of(((PathCard) card).pathType(), move.arg(2) == 1);
+        return state.board().placementStatus(path, move.arg(0), move.arg(1));
+      case PLAY_PLAYER:
+        if (!(card instanceof PlayerActionCard)) return MoveStatus.WRONG_CARD_TYPE;
+        int targetIndex = move.arg(0);
+        if (targetIndex < 0 || targetIndex >= state.numPlayers()) return MoveStatus.INVALID_TARGET;
+        Player target = state.playerAt(targetIndex);
+        int effects = ((PlayerActionCard) card).effectMask();
+        if (card.type() == Card.Type.BLOCK) {
+          if (targetIndex == playerIndex) return MoveStatus.SELF_SABOTAGE;
+          return (target.toolMask() & effects) == 0 ? MoveStatus.OK : MoveStatus.ALREADY_SABOTAGED;
+        }
+        return (target.toolMask() & effects) != 0 ? MoveStatus.OK : MoveStatus.NOT_REPAIRABLE;
+      case PLAY_MAP:
+        if (card.type() != Card.Type.MAP) return MoveStatus.WRONG_CARD_TYPE;
+        int goal = move.arg(0);
+        return goal >= 0 && goal < GOAL_POSITIONS.length ? MoveStatus.OK : MoveStatus.INVALID_GOAL;
+      case PLAY_ROCKFALL:
+        if (card.type() != Card.Type.ROCKFALL) return MoveStatus.WRONG_CARD_TYPE;
+        return state.board().removalStatus(move.arg(0), move.arg(1));
+      case DISCARD:
+        return MoveStatus.OK;
+      default:
+        return MoveStatus.UNKNOWN_TYPE;
     }
-    game.board().placePathCardAt(card, x, y);
   }
 
   /**
-   * Plays the specified player-action card to the targeted player
+   * Creates the exception describing why the specified move is invalid
    *
-   * @param playerIndex the playing player
-   * @param card        the player-action card
-   * @param targetIndex the targeted player
-   * @throws GameException when an invalid move is applied
+   * @param state  the game state
+   * @param move   the invalid move
+   * @param status the validation status
+   * @return the exception
    */
-  private void playPlayerActionCard(int playerIndex, PlayerActionCard card, int targetIndex)
-    throws GameException {
-    Player p = game.players().get(targetIndex);
-    if (card.type() == Card.Type.BLOCK) {
-      if (playerIndex == targetIndex) {
-        throw new GameException("Cannot sabotage self");
+  private static GameException rejection(GameState state, Move move, MoveStatus status) {
+    switch (status) {
+      case NO_MOVE:
+        return new GameException("No move is played");
+      case NOT_YOUR_TURN:
+        return new GameException("It is not %s's turn", state.playerAt(move.playerIndex()).name());
+      case INVALID_HAND_INDEX:
+        return new GameException("Hand index out of bounds");
+      case WRONG_CARD_TYPE:
+        switch (move.type()) {
+          case PLAY_PATH:
+            return new GameException("Cannot create a path with a non path card");
+          case PLAY_PLAYER:
+            return new GameException("Cannot block/repair another player with a non player-action card");
+          case PLAY_MAP:
+            return new GameException("Cannot open a goal card with a non map card");
+          default:
+            return new GameException("Cannot destroy a path with a non rockfall card");
+        }
+      case SABOTAGED:
+        return new GameException("%s is sabotaged and cannot place a path card", state.playerAt(move.playerIndex()).name());
+      case OUT_OF_BOUNDS:
+        return new GameException("Position (%d, %d) is out of bounds", move.arg(0), move.arg(1));
+      case OCCUPIED:
+      case UNREACHABLE:
+      case SIDE_MISMATCH:
+        return new GameException("Card cannot be placed at position (%d, %d)", move.arg(0), move.arg(1));
+      case INVALID_TARGET:
+        return new GameException("Player %d does not exist", move.arg(0));
+      case SELF_SABOTAGE:
+        return new GameException("Cannot sabotage self");
+      case ALREADY_SABOTAGED: {
+        Card card = state.playerAt(move.playerIndex()).peekCardAt(move.handIndex());
+        Tool tool = ((PlayerActionCard) card).effects()[0];
+        return new GameException("%s's %s is already sabotaged", state.playerAt(move.arg(0)).name(), tool);
       }
-      p.sabotageTool(card.effects()[0]);
-    } else if (card.type() == Card.Type.REPAIR) {
-      p.repairTools(card.effects());
+      case NOT_REPAIRABLE: {
+        Card card = state.playerAt(move.playerIndex()).peekCardAt(move.handIndex());
+        Tool[] tools = ((PlayerActionCard) card).effects();
+        String msgFormat = "%s's %s " + (tools.length > 1 ? "are" : "is") + " still intact";
+        return new GameException(msgFormat, state.playerAt(move.arg(0)).name(), Arrays.toString(tools));
+      }
+      case INVALID_GOAL:
+        return new GameException("Goal position %d does not exist", move.arg(0));
+      case PROTECTED_CELL:
+        return new GameException("Cannot remove the starting card or any of the goal cards");
+      case EMPTY_CELL:
+        return new GameException("Cell at (%d, %d) is empty", move.arg(0), move.arg(1));
+      default:
+        return new GameException("Unknown move type");
     }
   }
 
   /**
-   * Plays a map card on the specified goal position
+   * Plays a move on the specified state: validates the move, applies its effect, and replaces
+   * the played card with one from the deck. The state is only changed once the move is valid
    *
-   * @param playerIndex the playing player
-   * @param goalPos     the goal position
+   * @param state the game state
+   * @param move  the move to be played
+   * @return the record to undo the move
+   * @throws GameException when an invalid move is applied
    */
-  private void playMapCard(int playerIndex, Board.GoalPosition goalPos) {
-    sendGoalType(playerIndex, goalPos);
+  private static UndoRecord play(GameState state, Move move) throws GameException {
+    MoveStatus status = validate(state, move);
+    if (status != MoveStatus.OK) throw rejection(state, move, status);
+
+    Player p = state.playerAt(move.playerIndex());
+    int handIndex = move.handIndex();
+    Card card = p.peekCardAt(handIndex);
+    UndoRecord record = new UndoRecord(move, state.currentPlayerIndex(), card);
+    switch (move.type()) {
+      case PLAY_PATH:
+        // Place a copy in the move's rotation, leaving the card in hand untouched
+        PathCard played = ((PathCard) card).copy(move.arg(2) == 1);
+        state.board().putPathCardAt(played, move.arg(0), move.arg(1));
+        record.setPlayed(played);
+        break;
+      case PLAY_PLAYER:
+        record.setRepaired(playPlayerActionCard(state.playerAt(move.arg(0)), (PlayerActionCard) card));
+        break;
+      case PLAY_ROCKFALL:
+        record.setRemoved(state.board().pathCardAt(move.arg(0), move.arg(1)));
+        state.board().clearCardAt(move.arg(0), move.arg(1));
+        break;
+      case DISCARD:
+        p.addDiscard(card);
+        break;
+      default:
+        break;
+    }
+    // Replace the played card
+    p.takeCardAt(handIndex);
+    Card drawn = state.deck().draw();
+    p.giveCard(drawn);
+    if (drawn == null) state.addHandCards(-1);
+    record.setDrawn(drawn);
+    return record;
   }
 
   /**
-   * Plays a rockfall card on the specified position
+   * Plays the specified validated player-action card to the targeted player
    *
-   * @param x the targeted x position
-   * @param y the targeted y position
-   * @throws GameException when an invalid move is applied
+   * @param target the targeted player
+   * @param card   the player-action card
+   * @return the repaired tools, as a bit set of {@link Tool} ordinals
    */
-  private void playRockfallCard(int x, int y) throws GameException {
-    game.board().removeCardAt(x, y);
+  private static int playPlayerActionCard(Player target, PlayerActionCard card) {
+    if (card.type() == Card.Type.BLOCK) {
+      target.setSabotaged(card.effects()[0], true);
+      return 0;
+    }
+    int repaired = target.toolMask() & card.effectMask();
+    for (Tool tool : TOOLS) {
+      if ((repaired & (1 << tool.ordinal())) != 0) target.setSabotaged(tool, false);
+    }
+    return repaired;
   }
 
   /**
@@ -341,22 +703,21 @@ public class GameLogicController {
    *
    * @return the winning role or <code>null</code>
    */
-  public final Player.Role checkEndGame() {
-    if (game.board().isGoldReached())
-      return Player.Role.GOLD_MINER;
-    if (game.deck().isEmpty() && game.players().stream().allMatch(player -> player.hand().isEmpty()))
-      return Player.Role.SABOTEUR;
-    return null;
-  }
+  public final Player.Role checkEndGame() { return checkEndGame(game); }
 
   /**
-   * Takes a card from the deck
+   * Returns the winning role of the specified state if endgame condition is reached.
+   * Otherwise, it will return <code>null</code>
    *
-   * @return the topmost card if deck is not empty.
-   * Otherwise, <code>null</code> is returned
+   * @param state the game state
+   * @return the winning role or <code>null</code>
    */
-  private Card takeCardFromDeck() {
-    return game.deck().isEmpty() ? null : game.deck().pop();
+  public static Player.Role checkEndGame(GameState state) {
+    if (state.board().isGoldReached())
+      return Player.Role.GOLD_MINER;
+    if (state.deck().isEmpty() && state.handCards() == 0)
+      return Player.Role.SABOTEUR;
+    return null;
   }
 
   /**
@@ -509,7 +870,14 @@ public class GameLogicController {
    *
    * @return the current game board
    */
-  public final Board board() { return game.board(); }
+  public final GameBoard board() { return game.board(); }
+
+  /**
+   * Returns the controlled game state, which is never handed out to players
+   *
+   * @return the game state
+   */
+  final GameState state() { return game; }
 
   /**
    * Get the total number of cards per player for a given total players
@@ -541,112 +909,135 @@ public class GameLogicController {
    *
    * @return deck of cards
    */
-  public static Stack<Card> generateDeck() {
-    // Initialize new empty card stack
-    Stack<Card> deck = new Stack<>();
+  public static Deck generateDeck() {
+    return new Deck(defaultDeck());
+  }
+
+  /**
+   * Returns the card codes of the default deck, composing them again whenever
+   * {@link GameLogicController#CARD_COMPOSITION} has changed since they were last composed
+   *
+   * @return the card codes of the deck, bottom card first, which must not be modified
+   */
+  private static synchronized int[] defaultDeck() {
+    if (defaultDeck == null || !CARD_COMPOSITION.equals(defaultComposition)) {
+      defaultComposition = new HashMap<>(CARD_COMPOSITION);
+      defaultDeck = composeDeck();
+    }
+    return defaultDeck;
+  }
+
+  /**
+   * Composes the default card deck from {@link GameLogicController#CARD_COMPOSITION}
+   *
+   * @return the card codes of the deck, bottom card first
+   */
+  private static int[] composeDeck() {
+    // Initialize new empty card list
+    ArrayList<Card> deck = new ArrayList<>();
     int cardIndex = 1;
 
     //=====================================
     // initialize all pathway cards
     //=====================================
     for (int i = 0; i < CARD_COMPOSITION.get("CROSSROAD_PATH"); i++) {
-      deck.push(new PathCard(cardIndex++, PathCard.Type.CROSSROAD_PATH));
+      deck.add(new PathCard(cardIndex++, PathCard.Type.CROSSROAD_PATH));
     }
     for (int i = 0; i < CARD_COMPOSITION.get("HORIZONTAL_T_PATH"); i++) {
-      deck.push(new PathCard(cardIndex++, PathCard.Type.HORIZONTAL_T_PATH));
+      deck.add(new PathCard(cardIndex++, PathCard.Type.HORIZONTAL_T_PATH));
     }
     for (int i = 0; i < CARD_COMPOSITION.get("VERTICAL_T_PATH"); i++) {
-      deck.push(new PathCard(cardIndex++, PathCard.Type.VERTICAL_T_PATH));
+      deck.add(new PathCard(cardIndex++, PathCard.Type.VERTICAL_T_PATH));
     }
     for (int i = 0; i < CARD_COMPOSITION.get("HORIZONTAL_PATH"); i++) {
-      deck.push(new PathCard(cardIndex++, PathCard.Type.HORIZONTAL_PATH));
+      deck.add(new PathCard(cardIndex++, PathCard.Type.HORIZONTAL_PATH));
     }
     for (int i = 0; i < CARD_COMPOSITION.get("VERTICAL_PATH"); i++) {
-      deck.push(new PathCard(cardIndex++, PathCard.Type.VERTICAL_PATH));
+      deck.add(new PathCard(cardIndex++, PathCard.Type.VERTICAL_PATH));
     }
     for (int i = 0; i < CARD_COMPOSITION.get("LEFT_TURN_PATH"); i++) {
-      deck.push(new PathCard(cardIndex++, PathCard.Type.LEFT_TURN_PATH));
+      deck.add(new PathCard(cardIndex++, PathCard.Type.LEFT_TURN_PATH));
     }
     for (int i = 0; i < CARD_COMPOSITION.get("RIGHT_TURN_PATH"); i++) {
-      deck.push(new PathCard(cardIndex++, PathCard.Type.RIGHT_TURN_PATH));
+      deck.add(new PathCard(cardIndex++, PathCard.Type.RIGHT_TURN_PATH));
     }
 
     //=====================================
     // initialize all deadend cards
     //=====================================
     for (int i = 0; i < CARD_COMPOSITION.get("CROSSROAD_DEADEND"); i++) {
-      deck.push(new PathCard(cardIndex++, PathCard.Type.CROSSROAD_DEADEND));
+      deck.add(new PathCard(cardIndex++, PathCard.Type.CROSSROAD_DEADEND));
     }
     for (int i = 0; i < CARD_COMPOSITION.get("HORIZONTAL_T_DEADEND"); i++) {
-      deck.push(new PathCard(cardIndex++, PathCard.Type.HORIZONTAL_T_DEADEND));
+      deck.add(new PathCard(cardIndex++, PathCard.Type.HORIZONTAL_T_DEADEND));
     }
     for (int i = 0; i < CARD_COMPOSITION.get("VERTICAL_T_DEADEND"); i++) {
-      deck.push(new PathCard(cardIndex++, PathCard.Type.VERTICAL_T_DEADEND));
+      deck.add(new PathCard(cardIndex++, PathCard.Type.VERTICAL_T_DEADEND));
     }
     for (int i = 0; i < CARD_COMPOSITION.get("BOTH_HORIZONTAL_DEADEND"); i++) {
-      deck.push(new PathCard(cardIndex++, PathCard.Type.BOTH_HORIZONTAL_DEADEND));
+      deck.add(new PathCard(cardIndex++, PathCard.Type.BOTH_HORIZONTAL_DEADEND));
     }
     for (int i = 0; i < CARD_COMPOSITION.get("BOTH_VERTICAL_DEADEND"); i++) {
-      deck.push(new PathCard(cardIndex++, PathCard.Type.BOTH_VERTICAL_DEADEND));
+      deck.add(new PathCard(cardIndex++, PathCard.Type.BOTH_VERTICAL_DEADEND));
     }
     for (int i = 0; i < CARD_COMPOSITION.get("LEFT_TURN_DEADEND"); i++) {
-      deck.push(new PathCard(cardIndex++, PathCard.Type.LEFT_TURN_DEADEND));
+      deck.add(new PathCard(cardIndex++, PathCard.Type.LEFT_TURN_DEADEND));
     }
     for (int i = 0; i < CARD_COMPOSITION.get("RIGHT_TURN_DEADEND"); i++) {
-      deck.push(new PathCard(cardIndex++, PathCard.Type.RIGHT_TURN_DEADEND));
+      deck.add(new PathCard(cardIndex++, PathCard.Type.RIGHT_TURN_DEADEND));
     }
     for (int i = 0; i < CARD_COMPOSITION.get("SINGLE_HORIZONTAL_DEADEND"); i++) {
-      deck.push(new PathCard(cardIndex++, PathCard.Type.SINGLE_HORIZONTAL_DEADEND));
+      deck.add(new PathCard(cardIndex++, PathCard.Type.SINGLE_HORIZONTAL_DEADEND));
     }
     for (int i = 0; i < CARD_COMPOSITION.get("SINGLE_VERTICAL_DEADEND"); i++) {
-      deck.push(new PathCard(cardIndex++, PathCard.Type.SINGLE_VERTICAL_DEADEND));
+      deck.add(new PathCard(cardIndex++, PathCard.Type.SINGLE_VERTICAL_DEADEND));
     }
 
     //=====================================
     // initialize all board action cards
     //=====================================
     for (int i = 0; i < CARD_COMPOSITION.get("MAP"); i++) {
-      deck.push(new BoardActionCard(cardIndex++, BoardActionCard.Type.MAP));
+      deck.add(new BoardActionCard(cardIndex++, BoardActionCard.Type.MAP));
     }
     for (int i = 0; i < CARD_COMPOSITION.get("ROCKFALL"); i++) {
-      deck.push(new BoardActionCard(cardIndex++, BoardActionCard.Type.ROCKFALL));
+      deck.add(new BoardActionCard(cardIndex++, BoardActionCard.Type.ROCKFALL));
     }
 
     //=====================================
     // initialize all repair cards
     //=====================================
     for (int i = 0; i < CARD_COMPOSITION.get("REPAIR_CART"); i++) {
-      deck.push(new PlayerActionCard(cardIndex++, PlayerActionCard.Type.REPAIR_CART));
+      deck.add(new PlayerActionCard(cardIndex++, PlayerActionCard.Type.REPAIR_CART));
     }
     for (int i = 0; i < CARD_COMPOSITION.get("REPAIR_LANTERN"); i++) {
-      deck.push(new PlayerActionCard(cardIndex++, PlayerActionCard.Type.REPAIR_LANTERN));
+      deck.add(new PlayerActionCard(cardIndex++, PlayerActionCard.Type.REPAIR_LANTERN));
     }
     for (int i = 0; i < CARD_COMPOSITION.get("REPAIR_PICKAXE"); i++) {
-      deck.push(new PlayerActionCard(cardIndex++, PlayerActionCard.Type.REPAIR_PICKAXE));
+      deck.add(new PlayerActionCard(cardIndex++, PlayerActionCard.Type.REPAIR_PICKAXE));
     }
     for (int i = 0; i < CARD_COMPOSITION.get("REPAIR_CART_LANTERN"); i++) {
-      deck.push(new PlayerActionCard(cardIndex++, PlayerActionCard.Type.REPAIR_CART_LANTERN));
+      deck.add(new PlayerActionCard(cardIndex++, PlayerActionCard.Type.REPAIR_CART_LANTERN));
     }
     for (int i = 0; i < CARD_COMPOSITION.get("REPAIR_CART_PICKAXE"); i++) {
-      deck.push(new PlayerActionCard(cardIndex++, PlayerActionCard.Type.REPAIR_CART_PICKAXE));
+      deck.add(new PlayerActionCard(cardIndex++, PlayerActionCard.Type.REPAIR_CART_PICKAXE));
     }
     for (int i = 0; i < CARD_COMPOSITION.get("REPAIR_LANTERN_PICKAXE"); i++) {
-      deck.push(new PlayerActionCard(cardIndex++, PlayerActionCard.Type.REPAIR_LANTERN_PICKAXE));
+      deck.add(new PlayerActionCard(cardIndex++, PlayerActionCard.Type.REPAIR_LANTERN_PICKAXE));
     }
 
     //=====================================
     // initialize all block cards
     //=====================================
     for (int i = 0; i < CARD_COMPOSITION.get("BLOCK_CART"); i++) {
-      deck.push(new PlayerActionCard(cardIndex++, PlayerActionCard.Type.BLOCK_CART));
+      deck.add(new PlayerActionCard(cardIndex++, PlayerActionCard.Type.BLOCK_CART));
     }
     for (int i = 0; i < CARD_COMPOSITION.get("BLOCK_LANTERN"); i++) {
-      deck.push(new PlayerActionCard(cardIndex++, PlayerActionCard.Type.BLOCK_LANTERN));
+      deck.add(new PlayerActionCard(cardIndex++, PlayerActionCard.Type.BLOCK_LANTERN));
     }
     for (int i = 0; i < CARD_COMPOSITION.get("BLOCK_PICKAXE"); i++) {
-      deck.push(new PlayerActionCard(cardIndex++, PlayerActionCard.Type.BLOCK_PICKAXE));
+      deck.add(new PlayerActionCard(cardIndex++, PlayerActionCard.Type.BLOCK_PICKAXE));
     }
 
-    return deck;
+    return deck.stream().mapToInt(PackedState::cardCode).toArray();
   }
 }
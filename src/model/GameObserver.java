@@ -32,6 +32,14 @@ public abstract class GameObserver {
    */
   protected final GameLogicController game() { return this.game; }
 
+  /**
+   * Returns a read-only view of the current game board. Reading the board through
+   * this view does not copy any cell
+   *
+   * @return the current game board
+   */
+  protected final ReadOnlyBoard board() { return this.game.board(); }
+
   /**
    * Returns the game move history
    *
@@ -103,7 +111,7 @@ public abstract class GameObserver {
   /**
    * Notifies the observer that the game has started
    */
-  final void notifyGameStarted() { history.clear(); onGameStart(); }
+  final void notifyGameStarted() { history.clear(); knownGoals.clear(); onGameStart(); }
 
   /**
    * Notifies the observer that the game is finished
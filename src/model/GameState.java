@@ -1,9 +1,6 @@
 package model;
 
-import model.cards.Card;
-
 import java.util.ArrayList;
-import java.util.Stack;
 
 /**
  * The {@link GameState} class represents a game state. It doesn't contain any game
@@ -19,15 +16,17 @@ public class GameState {
   /** All players that joined the game */
   private ArrayList<Player> players;
   /** The current game board */
-  private Board board;
+  private GameBoard board;
   /** Marks the game as started */
   private boolean started;
   /** Marks the game as finished */
   private boolean finished;
   /** The current card deck */
-  private Stack<Card> deck;
+  private Deck deck;
   /** The current turn */
   private int currentPlayerIndex;
+  /** The number of cards in all players' hands */
+  private int handCards;
   /** The non player observers of the game */
   private ArrayList<GameObserver> nonPlayerObservers;
 
@@ -45,7 +44,7 @@ public class GameState {
    *
    * @param deck the deck
    */
-  public final void setDeck(Stack<Card> deck) {
+  public final void setDeck(Deck deck) {
     this.deck = deck;
   }
 
@@ -54,7 +53,7 @@ public class GameState {
    *
    * @param board the board
    */
-  public final void setBoard(Board board) {
+  public final void setBoard(GameBoard board) {
     this.board = board;
   }
 
@@ -95,6 +94,31 @@ public class GameState {
     } while (currentPlayer().handSize() == 0 && ++i < numPlayers);
   }
 
+  /**
+   * Recounts the cards in all players' hands, after the hands have been dealt
+   */
+  final void countHandCards() {
+    int count = 0;
+    for (Player player : players) count += player.handSize();
+    this.handCards = count;
+  }
+
+  /**
+   * Adjusts the number of cards in all players' hands
+   *
+   * @param delta the number of cards added to the hands, or removed if negative
+   */
+  final void addHandCards(int delta) {
+    this.handCards += delta;
+  }
+
+  /**
+   * Returns the number of cards in all players' hands, which is maintained on every move
+   *
+   * @return the number of cards in hands
+   */
+  public final int handCards() { return this.handCards; }
+
   /**
    * Returns the current player index
    *
@@ -165,14 +189,28 @@ public class GameState {
    *
    * @return the card deck
    */
-  public final Stack<Card> deck() { return this.deck; }
+  public final Deck deck() { return this.deck; }
 
   /**
    * Returns the current game board
    *
    * @return the current game board
    */
-  public final Board board() { return board; }
+  public final GameBoard board() { return board; }
+
+  /**
+   * Returns the Zobrist hash of the game position, covering the board, every player's
+   * sabotaged tools, the current player, and the deck size. The board and tool hashes are
+   * maintained as the game changes, so the hash is computed without visiting any cell or card
+   *
+   * @return the game position's hash
+   * @see Zobrist
+   */
+  public final long hash() {
+    long hash = board.hash() ^ Zobrist.turn(currentPlayerIndex) ^ Zobrist.deck(deck.size());
+    for (Player player : players) hash ^= player.toolHash();
+    return hash;
+  }
 
   /**
    * Returns the goal type
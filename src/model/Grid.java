@@ -0,0 +1,174 @@
+package model;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The {@link Grid} class is a table of canonical {@link Position} instances for a
+ * given board size.
+ * <p>
+ * Every position inside the grid is identified by a packed <code>int</code> coordinate,
+ * <code>x * height + y</code>, which is the same index used by the board's bit masks.
+ * Canonical positions are shared between all boards of the same size and are linked to
+ * their canonical neighbours, so walking the grid does not allocate.
+ * </p>
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public final class Grid {
+  /** The top direction */
+  public static final int TOP = 0;
+  /** The right direction */
+  public static final int RIGHT = 1;
+  /** The bottom direction */
+  public static final int BOTTOM = 2;
+  /** The left direction */
+  public static final int LEFT = 3;
+
+  /** All created grids, keyed by their dimension */
+  private static final ConcurrentMap<Long, Grid> GRIDS = new ConcurrentHashMap<>();
+
+  /** The width of the grid */
+  private final int width;
+  /** The height of the grid */
+  private final int height;
+  /** Canonical positions, indexed by packed coordinate */
+  private final Position[] positions;
+  /** Packed neighbour coordinates, indexed by <code>packed * 4 + direction</code>, or <code>-1</code> */
+  private final int[] neighbours;
+
+  /**
+   * Creates a {@link Grid} object of the specified dimension
+   *
+   * @param width  the width of the grid
+   * @param height the height of the grid
+   */
+  private Grid(int width, int height) {
+    this.width = width;
+    this.height = height;
+    this.positions = new Position[width * height];
+    this.neighbours = new int[width * height * 4];
+
+    for (int x = 0; x < width; x++) {
+      for (int y = 0; y < height; y++) {
+        positions[pack(x, y)] = new Position(x, y, pack(x, y));
+      }
+    }
+    for (int i = 0; i < positions.length; i++) {
+      int x = x(i), y = y(i);
+      neighbours[i * 4 + TOP] = contains(x, y - 1) ? pack(x, y - 1) : -1;
+      neighbours[i * 4 + RIGHT] = contains(x + 1, y) ? pack(x + 1, y) : -1;
+      neighbours[i * 4 + BOTTOM] = contains(x, y + 1) ? pack(x, y + 1) : -1;
+      neighbours[i * 4 + LEFT] = contains(x - 1, y) ? pack(x - 1, y) : -1;
+
+      Position[] links = new Position[4];
+      for (int dir = 0; dir < 4; dir++) {
+        int n = neighbours[i * 4 + dir];
+        links[dir] = n < 0 ? null : positions[n];
+      }
+      positions[i].link(links);
+    }
+  }
+
+  /**
+   * Returns the shared {@link Grid} of the specified dimension
+   *
+   * @param width  the width of the grid
+   * @param height the height of the grid
+   * @return the grid
+   */
+  public static Grid of(int width, int height) {
+    long key = ((long) width << 32) | (height & 0xffffffffL);
+    Grid grid = GRIDS.get(key);
+    if (grid == null) {
+      grid = new Grid(width, height);
+      Grid existing = GRIDS.putIfAbsent(key, grid);
+      if (existing != null) grid = existing;
+    }
+    return grid;
+  }
+
+  /**
+   * Checks whether the specified <code>(x, y)</code> position is inside the grid
+   *
+   * @param x the x position
+   * @param y the y position
+   * @return <code>true</code> if the position is inside the grid
+   */
+  public boolean contains(int x, int y) {
+    return x >= 0 && x < width && y >= 0 && y < height;
+  }
+
+  /**
+   * Returns the packed coordinate of the specified <code>(x, y)</code> position.
+   * The position must be inside the grid
+   *
+   * @param x the x position
+   * @param y the y position
+   * @return the packed coordinate
+   */
+  public int pack(int x, int y) { return x * height + y; }
+
+  /**
+   * Returns the x position of the specified packed coordinate
+   *
+   * @param packed the packed coordinate
+   * @return the x position
+   */
+  public int x(int packed) { return packed / height; }
+
+  /**
+   * Returns the y position of the specified packed coordinate
+   *
+   * @param packed the packed coordinate
+   * @return the y position
+   */
+  public int y(int packed) { return packed % height; }
+
+  /**
+   * Returns the canonical position of the specified packed coordinate
+   *
+   * @param packed the packed coordinate
+   * @return the canonical position
+   */
+  public Position position(int packed) { return positions[packed]; }
+
+  /**
+   * Returns the canonical position of the specified <code>(x, y)</code> position,
+   * or <code>null</code> if it is outside the grid
+   *
+   * @param x the x position
+   * @param y the y position
+   * @return the canonical position
+   */
+  public Position at(int x, int y) { return contains(x, y) ? positions[pack(x, y)] : null; }
+
+  /**
+   * Returns the packed coordinate of the neighbour in the specified direction
+   *
+   * @param packed the packed coordinate
+   * @param dir    the direction, see {@link Grid#TOP}, {@link Grid#RIGHT}, {@link Grid#BOTTOM}, and {@link Grid#LEFT}
+   * @return the neighbour's packed coordinate, or <code>-1</code> if it is outside the grid
+   */
+  public int neighbour(int packed, int dir) { return neighbours[packed * 4 + dir]; }
+
+  /**
+   * Returns the width of the grid
+   *
+   * @return the grid's width
+   */
+  public int width() { return width; }
+
+  /**
+   * Returns the height of the grid
+   *
+   * @return the grid's height
+   */
+  public int height() { return height; }
+
+  /**
+   * Returns the number of positions in the grid
+   *
+   * @return the grid's size
+   */
+  public int size() { return positions.length; }
+}
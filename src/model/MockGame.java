@@ -62,10 +62,10 @@ public class MockGame extends GameLogicController {
       40, 41, 42, 46, 47,   // Map, Map, Map, Rockfall, Rockfall
     };
     List<Integer> removedIndices = Arrays.stream(idxs).boxed().collect(Collectors.toList());
-    Stack<Card> deck = generateDeck();
-    List<Card> dist = removedIndices.stream().map(deck::get).collect(Collectors.toList());
+    Deck deck = generateDeck();
+    List<Card> dist = removedIndices.stream().map(deck::cardAt).collect(Collectors.toList());
     removedIndices.sort(Collections.reverseOrder());
-    removedIndices.forEach(deck::removeElementAt);
+    removedIndices.forEach(deck::removeAt);
     state.setDeck(deck);
 
     // Distribute roles and cards among players
@@ -77,6 +77,7 @@ public class MockGame extends GameLogicController {
       cardDistribution.forEach(h -> h.add(dist.remove(0)));
     for (int i = 0; i < players.length; ++i)
       game.playerAt(i).initialize(i, roles[i], cardDistribution.get(i));
+    state.countHandCards();
 
     // Intended role and card distribution
     // 0: + HT VT BC RC M
@@ -154,6 +154,14 @@ public class Move {
    */
   public final int[] args() { return this.args.clone(); }
 
+  /**
+   * Returns a single movement arg, without copying the args
+   *
+   * @param index the arg's index
+   * @return the movement arg
+   */
+  final int arg(int index) { return this.args[index]; }
+
   /**
    * Returns the played card
    *
@@ -0,0 +1,88 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * The {@link MoveBuffer} class is a reusable list of {@link PackedMove packed moves}.
+ * <p>
+ * A buffer only grows, so once it has held the longest move list of a game, filling it
+ * again with {@link MoveGenerator#generate(GameState, MoveBuffer)} does not allocate.
+ * </p>
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public final class MoveBuffer {
+  /** The default capacity of a buffer */
+  private static final int DEFAULT_CAPACITY = 256;
+
+  /** The packed moves */
+  private int[] moves;
+  /** The number of moves in the buffer */
+  private int size;
+
+  /**
+   * Creates an empty {@link MoveBuffer} object
+   */
+  public MoveBuffer() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Creates an empty {@link MoveBuffer} object of the specified initial capacity
+   *
+   * @param capacity the initial capacity
+   */
+  public MoveBuffer(int capacity) {
+    this.moves = new int[Math.max(1, capacity)];
+  }
+
+  /**
+   * Removes every move from the buffer, keeping its capacity
+   */
+  public final void clear() { this.size = 0; }
+
+  /**
+   * Appends a packed move to the buffer
+   *
+   * @param move the packed move
+   */
+  public final void add(int move) {
+    if (size == moves.length) moves = Arrays.copyOf(moves, size * 2);
+    moves[size++] = move;
+  }
+
+  /**
+   * Returns the packed move at the specified index
+   *
+   * @param index the move's index
+   * @return the packed move
+   */
+  public final int get(int index) {
+    if (index >= size) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    return moves[index];
+  }
+
+  /**
+   * Returns the move at the specified index as a {@link Move} object
+   *
+   * @param index       the move's index
+   * @param playerIndex the playing player index
+   * @return a {@link Move} object representing the move
+   */
+  public final Move toMove(int index, int playerIndex) {
+    return PackedMove.toMove(playerIndex, get(index));
+  }
+
+  /**
+   * Returns the number of moves in the buffer
+   *
+   * @return the number of moves
+   */
+  public final int size() { return size; }
+
+  /**
+   * Checks if the buffer is empty
+   *
+   * @return <code>true</code> if the buffer holds no move
+   */
+  public final boolean isEmpty() { return size == 0; }
+}
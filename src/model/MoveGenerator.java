@@ -0,0 +1,100 @@
+package model;
+
+import model.cards.Card;
+import model.cards.OrientedPath;
+import model.cards.PathCard;
+import model.cards.PlayerActionCard;
+
+/**
+ * The {@link MoveGenerator} class lists every legal move of the current player.
+ * <p>
+ * Moves are written as {@link PackedMove packed moves} into a caller-owned {@link MoveBuffer},
+ * and path placements and rockfall targets are enumerated through the board's cell indices,
+ * read from the cached placement masks of a {@link Board} or the cell store of a
+ * {@link SparseBoard}, so generating the moves of a turn does not allocate. Every generated move is accepted by
+ * {@link GameLogicController#validate(GameState, Move)}.
+ * </p>
+ * <p>
+ * A path card whose rotation has the same sides, such as a cross, is only listed unrotated,
+ * as both rotations lead to the same board.
+ * </p>
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public final class MoveGenerator {
+  /** The number of goal positions */
+  private static final int GOALS = Board.GoalPosition.values().length;
+
+  private MoveGenerator() {}
+
+  /**
+   * Fills the specified buffer with every legal move of the current player. The buffer is
+   * cleared first
+   *
+   * @param state the game state
+   * @param moves the buffer receiving the packed moves
+   * @return the number of generated moves
+   */
+  public static int generate(GameState state, MoveBuffer moves) {
+    moves.clear();
+    int playerIndex = state.currentPlayerIndex();
+    Player p = state.playerAt(playerIndex);
+    GameBoard board = state.board();
+    int handSize = Math.min(p.handSize(), PackedMove.MAX_HAND_INDEX + 1);
+    for (int i = 0; i < handSize; i++) {
+      Card card = p.peekCardAt(i);
+      if (card instanceof PathCard) {
+        if (!p.isSabotaged()) generatePaths(board, i, (PathCard) card, moves);
+      } else if (card instanceof PlayerActionCard) {
+        generatePlayerActions(state, playerIndex, i, (PlayerActionCard) card, moves);
+      } else if (card.type() == Card.Type.MAP) {
+        for (int goal = 0; goal < GOALS; goal++) moves.add(PackedMove.map(i, goal));
+      } else if (card.type() == Card.Type.ROCKFALL) {
+        for (int c = board.nextRemovable(0); c >= 0; c = board.nextRemovable(c + 1)) {
+          moves.add(PackedMove.rockfall(i, board.cellX(c), board.cellY(c)));
+        }
+      }
+      moves.add(PackedMove.discard(i));
+    }
+    return moves.size();
+  }
+
+  /**
+   * Adds the placements of a path card in both rotations
+   *
+   * @param board     the board
+   * @param handIndex the card's hand index
+   * @param card      the path card
+   * @param moves     the buffer receiving the packed moves
+   */
+  private static void generatePaths(GameBoard board, int handIndex, PathCard card, MoveBuffer moves) {
+    OrientedPath path = OrientedPath.of(card.pathType(), false);
+    boolean symmetric = path.rotate().code() == path.code();
+    for (int r = 0; r < (symmetric ? 1 : 2); r++) {
+      OrientedPath oriented = r == 0 ? path : path.rotate();
+      for (int c = board.nextPlaceable(oriented, 0); c >= 0; c = board.nextPlaceable(oriented, c + 1)) {
+        moves.add(PackedMove.path(handIndex, board.cellX(c), board.cellY(c), oriented.rotated()));
+      }
+    }
+  }
+
+  /**
+   * Adds the targets of a block or repair card
+   *
+   * @param state       the game state
+   * @param playerIndex the playing player index
+   * @param handIndex   the card's hand index
+   * @param card        the player-action card
+   * @param moves       the buffer receiving the packed moves
+   */
+  private static void generatePlayerActions(GameState state, int playerIndex, int handIndex,
+                                            PlayerActionCard card, MoveBuffer moves) {
+    int effects = card.effectMask();
+    boolean block = card.type() == Card.Type.BLOCK;
+    for (int target = 0; target < state.numPlayers(); target++) {
+      int tools = state.playerAt(target).toolMask();
+      if (block ? target != playerIndex && (tools & effects) == 0 : (tools & effects) != 0) {
+        moves.add(PackedMove.player(handIndex, target));
+      }
+    }
+  }
+}
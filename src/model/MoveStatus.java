@@ -0,0 +1,51 @@
+package model;
+
+/**
+ * The {@link MoveStatus} enum represents the outcome of validating a {@link Move},
+ * see {@link GameLogicController#validate(Move)}
+ */
+public enum MoveStatus {
+  /** The move is allowed */
+  OK,
+  /** There is no move */
+  NO_MOVE,
+  /** The move is not played by the current player */
+  NOT_YOUR_TURN,
+  /** The hand index does not point to a card */
+  INVALID_HAND_INDEX,
+  /** The card cannot be played by this type of move */
+  WRONG_CARD_TYPE,
+  /** The player is sabotaged and cannot place a path card */
+  SABOTAGED,
+  /** The targeted position is outside the board */
+  OUT_OF_BOUNDS,
+  /** The targeted cell already holds a card */
+  OCCUPIED,
+  /** The targeted cell is not reachable from the starting card */
+  UNREACHABLE,
+  /** The path card does not match the sides of its neighbours */
+  SIDE_MISMATCH,
+  /** The targeted player does not exist */
+  INVALID_TARGET,
+  /** The player targets themselves with a block card */
+  SELF_SABOTAGE,
+  /** The targeted tool is already sabotaged */
+  ALREADY_SABOTAGED,
+  /** None of the repaired tools is sabotaged */
+  NOT_REPAIRABLE,
+  /** The goal position does not exist */
+  INVALID_GOAL,
+  /** The targeted cell holds the starting card or a goal card */
+  PROTECTED_CELL,
+  /** The targeted cell holds no card */
+  EMPTY_CELL,
+  /** The move type is not known */
+  UNKNOWN_TYPE;
+
+  /**
+   * Checks whether the move is allowed
+   *
+   * @return <code>true</code> if the status is {@link MoveStatus#OK}
+   */
+  public final boolean ok() { return this == OK; }
+}
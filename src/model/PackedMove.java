@@ -0,0 +1,228 @@
+package model;
+
+/**
+ * The {@link PackedMove} class encodes a {@link Move} of the current player into a single <code>int</code>.
+ * <p>
+ * Packed moves are what {@link MoveGenerator} writes into a {@link MoveBuffer}, so listing
+ * every legal move of a turn does not create any object. The playing player is not part of
+ * the code, and is supplied when a packed move is turned back into a {@link Move}.
+ * </p>
+ * <p>Layout, from the lowest bit:</p>
+ * <ul>
+ * <li>bits 0-2: the {@link Move.Type} ordinal</li>
+ * <li>bits 3-7: the hand index</li>
+ * <li>bit 8: the rotation of a path card</li>
+ * <li>bits 9-19: the x position, the goal position, or the target player index</li>
+ * <li>bits 20-30: the y position</li>
+ * </ul>
+ * <p>
+ * Positions are signed, so the moves of a {@link SparseBoard} that grew past the start card
+ * can be packed too.
+ * </p>
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public final class PackedMove {
+  /** All move types, indexed by ordinal */
+  private static final Move.Type[] TYPES = Move.Type.values();
+  /** All goal positions, indexed by ordinal */
+  private static final Board.GoalPosition[] GOAL_POSITIONS = Board.GoalPosition.values();
+
+  /** The bit offset of the hand index */
+  private static final int HAND_SHIFT = 3;
+  /** The bit offset of the rotation flag */
+  private static final int ROTATED_SHIFT = 8;
+  /** The bit offset of the x position */
+  private static final int X_SHIFT = 9;
+  /** The bit offset of the y position */
+  private static final int Y_SHIFT = 20;
+  /** The mask of the type */
+  private static final int TYPE_MASK = 0x7;
+  /** The mask of the hand index, once shifted */
+  private static final int HAND_MASK = 0x1f;
+  /** The mask of a position, once shifted */
+  private static final int POSITION_MASK = 0x7ff;
+  /** The number of bits of a position */
+  private static final int POSITION_BITS = 11;
+
+  /** The largest hand index a packed move can hold */
+  public static final int MAX_HAND_INDEX = HAND_MASK;
+  /** The largest position or player index a packed move can hold */
+  public static final int MAX_POSITION = POSITION_MASK >> 1;
+  /** The smallest position a packed move can hold */
+  public static final int MIN_POSITION = -MAX_POSITION - 1;
+
+  private PackedMove() {}
+
+  /**
+   * Packs a path card move
+   *
+   * @param handIndex the index from the player's hand
+   * @param x         the target x position
+   * @param y         the target y position
+   * @param rotated   flag marking card is supposed to be rotated
+   * @return the packed move
+   */
+  public static int path(int handIndex, int x, int y, boolean rotated) {
+    return pack(Move.Type.PLAY_PATH, handIndex, x, y) | (rotated ? 1 << ROTATED_SHIFT : 0);
+  }
+
+  /**
+   * Packs a map card move
+   *
+   * @param handIndex the index from the player's hand
+   * @param goal      the target goal position ordinal
+   * @return the packed move
+   */
+  public static int map(int handIndex, int goal) {
+    return pack(Move.Type.PLAY_MAP, handIndex, goal, 0);
+  }
+
+  /**
+   * Packs a rockfall card move
+   *
+   * @param handIndex the index from the player's hand
+   * @param x         the target x position
+   * @param y         the target y position
+   * @return the packed move
+   */
+  public static int rockfall(int handIndex, int x, int y) {
+    return pack(Move.Type.PLAY_ROCKFALL, handIndex, x, y);
+  }
+
+  /**
+   * Packs a player-action card move
+   *
+   * @param handIndex         the index from the player's hand
+   * @param targetPlayerIndex the targeted player index
+   * @return the packed move
+   */
+  public static int player(int handIndex, int targetPlayerIndex) {
+    return pack(Move.Type.PLAY_PLAYER, handIndex, targetPlayerIndex, 0);
+  }
+
+  /**
+   * Packs a discard move
+   *
+   * @param handIndex the index from the player's hand
+   * @return the packed move
+   */
+  public static int discard(int handIndex) {
+    return pack(Move.Type.DISCARD, handIndex, 0, 0);
+  }
+
+  /**
+   * Packs a {@link Move} object, dropping its player index
+   *
+   * @param move the move
+   * @return the packed move
+   */
+  public static int of(Move move) {
+    switch (move.type()) {
+      case PLAY_PATH:
+        return path(move.handIndex(), move.arg(0), move.arg(1), move.arg(2) == 1);
+      case PLAY_MAP:
+        return map(move.handIndex(), move.arg(0));
+      case PLAY_ROCKFALL:
+        return rockfall(move.handIndex(), move.arg(0), move.arg(1));
+      case PLAY_PLAYER:
+        return player(move.handIndex(), move.arg(0));
+      default:
+        return discard(move.handIndex());
+    }
+  }
+
+  /**
+   * Unpacks a move into a {@link Move} object
+   *
+   * @param playerIndex the playing player index
+   * @param code        the packed move
+   * @return a {@link Move} object representing the move
+   */
+  public static Move toMove(int playerIndex, int code) {
+    int handIndex = handIndex(code);
+    switch (type(code)) {
+      case PLAY_PATH:
+        return Move.NewPathMove(playerIndex, handIndex, x(code), y(code), rotated(code));
+      case PLAY_MAP:
+        return Move.NewMapMove(playerIndex, handIndex, GOAL_POSITIONS[goal(code)]);
+      case PLAY_ROCKFALL:
+        return Move.NewRockfallMove(playerIndex, handIndex, x(code), y(code));
+      case PLAY_PLAYER:
+        return Move.NewPlayerActionMove(playerIndex, handIndex, target(code));
+      default:
+        return Move.NewDiscardMove(playerIndex, handIndex);
+    }
+  }
+
+  /**
+   * Returns the type of a packed move
+   *
+   * @param code the packed move
+   * @return the move type
+   */
+  public static Move.Type type(int code) { return TYPES[code & TYPE_MASK]; }
+
+  /**
+   * Returns the hand index of a packed move
+   *
+   * @param code the packed move
+   * @return the hand index
+   */
+  public static int handIndex(int code) { return (code >>> HAND_SHIFT) & HAND_MASK; }
+
+  /**
+   * Returns the rotation of a packed path card move
+   *
+   * @param code the packed move
+   * @return <code>true</code> if the card is rotated
+   */
+  public static boolean rotated(int code) { return (code >>> ROTATED_SHIFT & 1) != 0; }
+
+  /**
+   * Returns the target x position of a packed path or rockfall card move
+   *
+   * @param code the packed move
+   * @return the x position
+   */
+  public static int x(int code) { return code << (32 - X_SHIFT - POSITION_BITS) >> (32 - POSITION_BITS); }
+
+  /**
+   * Returns the target y position of a packed path or rockfall card move
+   *
+   * @param code the packed move
+   * @return the y position
+   */
+  public static int y(int code) { return code << (32 - Y_SHIFT - POSITION_BITS) >> (32 - POSITION_BITS); }
+
+  /**
+   * Returns the goal position ordinal of a packed map card move
+   *
+   * @param code the packed move
+   * @return the goal position ordinal
+   */
+  public static int goal(int code) { return x(code); }
+
+  /**
+   * Returns the targeted player index of a packed player-action card move
+   *
+   * @param code the packed move
+   * @return the targeted player index
+   */
+  public static int target(int code) { return x(code); }
+
+  /**
+   * Packs the common fields of a move
+   *
+   * @param type      the move type
+   * @param handIndex the index from the player's hand
+   * @param x         the x position, goal or target
+   * @param y         the y position
+   * @return the packed move
+   */
+  private static int pack(Move.Type type, int handIndex, int x, int y) {
+    return type.ordinal()
+           | (handIndex & HAND_MASK) << HAND_SHIFT
+           | (x & POSITION_MASK) << X_SHIFT
+           | (y & POSITION_MASK) << Y_SHIFT;
+  }
+}
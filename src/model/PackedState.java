@@ -0,0 +1,640 @@
+package model;
+
+import model.cards.BoardActionCard;
+import model.cards.Card;
+import model.cards.PathCard;
+import model.cards.PlayerActionCard;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * The {@link PackedState} class stores a whole {@link GameState} round in a single
+ * <code>int</code> array: the path cards on the board, the deck, and every player's role,
+ * tools, hand, and discarded cards, along with the turn and the game flags.
+ * <p>
+ * The board is stored as the list of its path cards, ordered by position, so a state packed
+ * from a {@link SparseBoard} only grows with the number of placed cards. The width and height
+ * are those of the start and goal layout, which is all a new board needs besides the cards.
+ * </p>
+ * <p>
+ * Cards are stored as card codes, holding the card's id, its rotation, and its kind,
+ * see {@link PackedState#cardCode(Card)}. The layout of the array is fixed when the state
+ * is packed, so copying a packed state is a single {@link System#arraycopy}, and
+ * {@link PackedState#copyFrom(PackedState)} copies without any allocation at all.
+ * Converting back with {@link PackedState#unpack()} restores the object model exactly,
+ * down to each card's id.
+ * </p>
+ * <p>
+ * Players get a packed state through {@link Player#packedState(Random)}, which never holds
+ * what the player cannot see: the deck order, the other players' hands and roles, and the
+ * unseen goals are dealt again at random.
+ * </p>
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public final class PackedState {
+  /** Cached path types, indexed by ordinal */
+  private static final PathCard.Type[] PATH_TYPES = PathCard.Type.values();
+  /** Cached board-action types, indexed by ordinal */
+  private static final BoardActionCard.Type[] BOARD_ACTION_TYPES = BoardActionCard.Type.values();
+  /** Cached player-action types, indexed by ordinal */
+  private static final PlayerActionCard.Type[] PLAYER_ACTION_TYPES = PlayerActionCard.Type.values();
+  /** Cached goal types, indexed by ordinal */
+  private static final GoalType[] GOAL_TYPES = GoalType.values();
+  /** Cached roles, indexed by ordinal */
+  private static final Player.Role[] ROLES = Player.Role.values();
+  /** Cached tools, indexed by ordinal */
+  private static final Tool[] TOOLS = Tool.values();
+
+  /** The first card kind of the board-action cards, following the path cards */
+  public static final int BOARD_ACTION_KIND = PATH_TYPES.length;
+  /** The first card kind of the player-action cards, following the board-action cards */
+  public static final int PLAYER_ACTION_KIND = BOARD_ACTION_KIND + BOARD_ACTION_TYPES.length;
+  /** The number of card kinds */
+  public static final int KINDS = PLAYER_ACTION_KIND + PLAYER_ACTION_TYPES.length;
+  /** The card code of an empty cell */
+  public static final int EMPTY = -1;
+
+  /** The bits of the card kind in a card code */
+  private static final int KIND_MASK = 0x1f;
+  /** The rotation bit of a card code */
+  private static final int ROTATED = 0x20;
+  /** The shift of the card id in a card code */
+  private static final int ID_SHIFT = 6;
+
+  /** The started flag */
+  private static final int STARTED = 1;
+  /** The finished flag */
+  private static final int FINISHED = 2;
+  /** The flag of a round played on a {@link SparseBoard} */
+  private static final int SPARSE = 4;
+
+  // Header fields
+  private static final int WIDTH = 0;
+  private static final int HEIGHT = 1;
+  private static final int NUM_PLAYERS = 2;
+  private static final int NUM_CARDS = 3;
+  private static final int HAND_CAPACITY = 4;
+  private static final int CURRENT_PLAYER = 5;
+  private static final int FLAGS = 6;
+  private static final int GOALS = 7;
+  private static final int DECK_SIZE = 8;
+  private static final int PLACED = 9;
+  private static final int HEADER = 10;
+
+  // Placed card fields
+  private static final int PLACED_X = 0;
+  private static final int PLACED_Y = 1;
+  private static final int PLACED_CODE = 2;
+  private static final int PLACED_LENGTH = 3;
+
+  // Player block fields
+  private static final int ROLE = 0;
+  private static final int TOOLS_MASK = 1;
+  private static final int HAND_SIZE = 2;
+  private static final int DISCARD_SIZE = 3;
+  private static final int PLAYER_HEADER = 4;
+
+  /** The packed state */
+  private final int[] data;
+  /** The offset of the deck, bottom card first */
+  private final int deckOffset;
+  /** The offset of the first player block */
+  private final int playersOffset;
+  /** The length of a player block */
+  private final int playerLength;
+
+  /**
+   * The {@link SearchPlayer} class represents a player of an unpacked state
+   */
+  private static final class SearchPlayer extends Player {
+    /**
+     * Creates a {@link SearchPlayer} object of the specified index
+     *
+     * @param index the player's index
+     */
+    private SearchPlayer(int index) {
+      super("Player " + (index + 1));
+    }
+  }
+
+  /**
+   * Creates a {@link PackedState} object over the specified data
+   *
+   * @param data the packed state
+   */
+  private PackedState(int[] data) {
+    this.data = data;
+    this.deckOffset = HEADER + data[PLACED] * PLACED_LENGTH;
+    this.playersOffset = deckOffset + data[NUM_CARDS];
+    this.playerLength = PLAYER_HEADER + data[HAND_CAPACITY] + data[NUM_CARDS];
+  }
+
+  /**
+   * Packs the specified game state
+   *
+   * @param state the game state, with a board, a deck, and initialized players
+   * @return the packed state
+   */
+  public static PackedState pack(GameState state) {
+    GameBoard board = state.board();
+    ArrayList<Player> players = state.players();
+    int width = board.topGoalPosition().x - board.startPosition().x + 1;
+    int height = board.bottomGoalPosition().y - board.topGoalPosition().y + 1;
+
+    // Placed path cards, ordered by position so equal boards pack equally
+    int placed = 0;
+    for (int c = board.nextRemovable(0); c >= 0; c = board.nextRemovable(c + 1)) placed++;
+    long[] positions = new long[placed];
+    placed = 0;
+    for (int c = board.nextRemovable(0); c >= 0; c = board.nextRemovable(c + 1)) {
+      positions[placed++] = (long) board.cellX(c) << 32 | (board.cellY(c) & 0xffffffffL);
+    }
+    Arrays.sort(positions);
+
+    // Size the layout after the cards in play
+    int numCards = state.deck().size() + placed, handCapacity = 0;
+    for (Player p : players) {
+      numCards += p.handSize() + p.discarded().size();
+      handCapacity = Math.max(handCapacity, p.handSize());
+    }
+
+    int playerLength = PLAYER_HEADER + handCapacity + numCards;
+    int[] data = new int[HEADER + placed * PLACED_LENGTH + numCards + players.size() * playerLength];
+    data[WIDTH] = width;
+    data[HEIGHT] = height;
+    data[NUM_PLAYERS] = players.size();
+    data[NUM_CARDS] = numCards;
+    data[HAND_CAPACITY] = handCapacity;
+    data[PLACED] = placed;
+    PackedState packed = new PackedState(data);
+
+    // Turn and flags
+    data[CURRENT_PLAYER] = state.currentPlayerIndex();
+    data[FLAGS] = (state.started() ? STARTED : 0) | (state.finished() ? FINISHED : 0)
+                  | (board instanceof SparseBoard ? SPARSE : 0);
+
+    // Board
+    GoalType top = board.peekGoal(Board.GoalPosition.TOP);
+    data[GOALS] = top == null ? EMPTY : top.ordinal()
+      | board.peekGoal(Board.GoalPosition.MIDDLE).ordinal() << 4
+      | board.peekGoal(Board.GoalPosition.BOTTOM).ordinal() << 8;
+    for (int i = 0; i < placed; i++) {
+      int x = (int) (positions[i] >> 32), y = (int) positions[i];
+      int offset = HEADER + i * PLACED_LENGTH;
+      data[offset + PLACED_X] = x;
+      data[offset + PLACED_Y] = y;
+      data[offset + PLACED_CODE] = cardCode(board.pathCardAt(x, y));
+    }
+
+    // Deck, bottom card first
+    Deck deck = state.deck();
+    data[DECK_SIZE] = deck.size();
+    for (int i = 0; i < deck.size(); i++) data[packed.deckOffset + i] = cardCode(deck.cardAt(i));
+
+    // Players
+    for (int i = 0; i < players.size(); i++) {
+      Player p = players.get(i);
+      int offset = packed.playerOffset(i);
+      int tools = 0;
+      for (Tool tool : p.sabotaged()) tools |= 1 << tool.ordinal();
+      data[offset + ROLE] = p.role().ordinal();
+      data[offset + TOOLS_MASK] = tools;
+      data[offset + HAND_SIZE] = p.handSize();
+      data[offset + DISCARD_SIZE] = p.discarded().size();
+      int hand = offset + PLAYER_HEADER, discards = hand + handCapacity;
+      for (int k = 0; k < p.handSize(); k++) data[hand + k] = cardCode(p.peekCardAt(k));
+      for (int k = 0; k < p.discarded().size(); k++) data[discards + k] = cardCode(p.discarded().get(k));
+    }
+    return packed;
+  }
+
+  /**
+   * Deals the information hidden from the specified player again at random, in place. The
+   * deck and the other players' hands are shuffled together and dealt back with the same
+   * sizes, the other players' roles are shuffled among them, and the goals the player has not
+   * seen are shuffled among their positions. The player's own hand and role, the board, the
+   * tools, and the discards are public to the player, and are kept
+   *
+   * @param viewer     the index of the player the state is packed for
+   * @param knownGoals the goals the player has seen, as a bit set of {@link Board.GoalPosition} ordinals
+   * @param random     the random source
+   * @return this packed state
+   */
+  final PackedState determinize(int viewer, int knownGoals, Random random) {
+    int capacity = data[HAND_CAPACITY];
+
+    // Cards: the deck, followed by the other players' hands
+    int[] hidden = new int[data[NUM_CARDS]];
+    int n = 0;
+    for (int i = 0; i < deckSize(); i++) hidden[n++] = deckCardAt(i);
+    for (int i = 0; i < numPlayers(); i++) {
+      if (i == viewer) continue;
+      int hand = playerOffset(i) + PLAYER_HEADER;
+      for (int k = 0; k < handSize(i); k++) hidden[n++] = data[hand + k];
+    }
+    shuffle(hidden, n, random);
+    n = 0;
+    for (int i = 0; i < deckSize(); i++) data[deckOffset + i] = hidden[n++] & ~ROTATED;
+    for (int i = 0; i < numPlayers(); i++) {
+      if (i == viewer) continue;
+      int hand = playerOffset(i) + PLAYER_HEADER;
+      for (int k = 0; k < handSize(i); k++) data[hand + k] = hidden[n++] & ~ROTATED;
+    }
+
+    // Roles of the other players
+    int[] roles = new int[numPlayers()];
+    n = 0;
+    for (int i = 0; i < numPlayers(); i++) {
+      if (i != viewer) roles[n++] = data[playerOffset(i) + ROLE];
+    }
+    shuffle(roles, n, random);
+    n = 0;
+    for (int i = 0; i < numPlayers(); i++) {
+      if (i != viewer) data[playerOffset(i) + ROLE] = roles[n++];
+    }
+
+    // Unseen goals
+    if (data[GOALS] != EMPTY) {
+      Board.GoalPosition[] positions = Board.GoalPosition.values();
+      int[] goals = new int[positions.length];
+      n = 0;
+      for (Board.GoalPosition position : positions) {
+        if ((knownGoals & (1 << position.ordinal())) == 0) goals[n++] = goal(position).ordinal();
+      }
+      shuffle(goals, n, random);
+      n = 0;
+      int packed = 0;
+      for (Board.GoalPosition position : positions) {
+        int type = (knownGoals & (1 << position.ordinal())) != 0 ? goal(position).ordinal() : goals[n++];
+        packed |= type << (position.ordinal() * 4);
+      }
+      data[GOALS] = packed;
+    }
+    return this;
+  }
+
+  /**
+   * Shuffles the first <code>n</code> values of the specified array in place
+   *
+   * @param values the values
+   * @param n      the number of values to be shuffled
+   * @param random the random source
+   */
+  private static void shuffle(int[] values, int n, Random random) {
+    for (int i = n; i > 1; i--) {
+      int j = random.nextInt(i);
+      int value = values[i - 1];
+      values[i - 1] = values[j];
+      values[j] = value;
+    }
+  }
+
+  /**
+   * Restores the packed round into a new game state, with players of its own. The returned
+   * state is detached from any game, so it can be searched with
+   * {@link GameLogicController#apply(GameState, Move)} and
+   * {@link GameLogicController#undo(GameState, UndoRecord)}
+   *
+   * @return the game state
+   * @see PackedState#unpack(GameState)
+   */
+  public final GameState unpack() {
+    ArrayList<Player> players = new ArrayList<>();
+    for (int i = 0; i < numPlayers(); i++) players.add(new SearchPlayer(i));
+    GameState state = new GameState();
+    state.setPlayers(players);
+    unpack(state);
+    return state;
+  }
+
+  /**
+   * Restores the packed round into the specified game state. The board, the deck, and every
+   * player's hand are rebuilt from the card codes, and the state's players are re-initialized
+   * with their packed role, tools, and cards. The new deck knows every card of the round, so
+   * cards can be returned to it when a move is undone
+   *
+   * @param state the game state, holding as many players as the packed state
+   * @throws IllegalArgumentException when the number of players differs
+   */
+  final void unpack(GameState state) {
+    if (state.numPlayers() != numPlayers()) {
+      String msgFormat = "Cannot unpack %d players into a game of %d players";
+      throw new IllegalArgumentException(String.format(msgFormat, numPlayers(), state.numPlayers()));
+    }
+    // Deck, followed by the cards in play
+    int[] codes = new int[data[NUM_CARDS]];
+    int n = 0;
+    for (int i = 0; i < deckSize(); i++) codes[n++] = deckCardAt(i);
+    for (int i = 0; i < numPlayers(); i++) {
+      int offset = playerOffset(i), discards = offset + PLAYER_HEADER + data[HAND_CAPACITY];
+      for (int k = 0; k < handSize(i); k++) codes[n++] = handCardAt(i, k);
+      for (int k = 0; k < data[offset + DISCARD_SIZE]; k++) codes[n++] = data[discards + k];
+    }
+    for (int i = 0; i < placedCount(); i++) codes[n++] = placedCardAt(i);
+    Deck deck = new Deck(codes, deckSize());
+    state.setDeck(deck);
+
+    // Board
+    GameBoard board = sparse() ? new SparseBoard(width(), height()) : new Board(width(), height());
+    if (data[GOALS] != EMPTY) {
+      board.initialize(goal(Board.GoalPosition.TOP), goal(Board.GoalPosition.MIDDLE),
+                       goal(Board.GoalPosition.BOTTOM));
+    }
+    for (int i = 0; i < placedCount(); i++) {
+      board.putPathCardAt((PathCard) card(deck, placedCardAt(i)), placedX(i), placedY(i));
+    }
+    state.setBoard(board);
+
+    // Players
+    for (int i = 0; i < numPlayers(); i++) {
+      int offset = playerOffset(i);
+      ArrayList<Card> hand = new ArrayList<>();
+      for (int k = 0; k < handSize(i); k++) hand.add(card(deck, handCardAt(i, k)));
+      Player p = state.playerAt(i);
+      p.initialize(i, role(i), hand);
+      for (Tool tool : TOOLS) {
+        if ((tools(i) & (1 << tool.ordinal())) != 0) p.setSabotaged(tool, true);
+      }
+      int discards = offset + PLAYER_HEADER + data[HAND_CAPACITY];
+      for (int k = 0; k < data[offset + DISCARD_SIZE]; k++) p.addDiscard(card(deck, data[discards + k]));
+    }
+
+    state.countHandCards();
+
+    // Turn and flags
+    state.setCurrentPlayerIndex(currentPlayerIndex());
+    state.setStarted(started());
+    state.setFinished(finished());
+  }
+
+  /**
+   * Returns a copy of the packed state
+   *
+   * @return the copy
+   */
+  public final PackedState copy() {
+    int[] copy = new int[data.length];
+    System.arraycopy(data, 0, copy, 0, data.length);
+    return new PackedState(copy);
+  }
+
+  /**
+   * Overwrites this packed state with the specified one, without allocating
+   *
+   * @param other the packed state to be copied, packed from the same game state
+   * @throws IllegalArgumentException when the layouts of the states differ
+   */
+  public final void copyFrom(PackedState other) {
+    if (other.data.length != data.length || other.playerLength != playerLength) {
+      throw new IllegalArgumentException("Cannot copy a packed state of a different layout");
+    }
+    System.arraycopy(other.data, 0, data, 0, data.length);
+  }
+
+  /**
+   * Returns the card code of the specified card: the card's id shifted by 6 bits,
+   * the rotation of a path card at bit 5, and the card kind in the lowest 5 bits
+   *
+   * @param card the card
+   * @return the card code
+   */
+  public static int cardCode(Card card) {
+    int kind;
+    boolean rotated = false;
+    if (card instanceof PathCard) {
+      kind = ((PathCard) card).pathType().ordinal();
+      rotated = ((PathCard) card).rotated();
+    } else if (card instanceof BoardActionCard) {
+      kind = BOARD_ACTION_KIND + ((BoardActionCard) card).boardActionType().ordinal();
+    } else {
+      kind = PLAYER_ACTION_KIND + ((PlayerActionCard) card).playerActionType().ordinal();
+    }
+    return card.id() << ID_SHIFT | (rotated ? ROTATED : 0) | kind;
+  }
+
+  /**
+   * Creates the card represented by the specified card code
+   *
+   * @param code the card code
+   * @return a new card
+   */
+  public static Card card(int code) {
+    int kind = kind(code), id = id(code);
+    if (kind < BOARD_ACTION_KIND) {
+      PathCard card = new PathCard(id, PATH_TYPES[kind]);
+      card.setRotated((code & ROTATED) != 0);
+      return card;
+    }
+    if (kind < PLAYER_ACTION_KIND) return new BoardActionCard(id, BOARD_ACTION_TYPES[kind - BOARD_ACTION_KIND]);
+    return new PlayerActionCard(id, PLAYER_ACTION_TYPES[kind - PLAYER_ACTION_KIND]);
+  }
+
+  /**
+   * Returns the card of the specified deck represented by the specified card code,
+   * in the code's rotation
+   *
+   * @param deck the deck
+   * @param code the card code
+   * @return the card
+   */
+  private static Card card(Deck deck, int code) {
+    Card card = deck.card(id(code));
+    if (card instanceof PathCard) ((PathCard) card).setRotated((code & ROTATED) != 0);
+    return card;
+  }
+
+  /**
+   * Returns the card id of the specified card code
+   *
+   * @param code the card code
+   * @return the card id
+   */
+  public static int id(int code) { return code >>> ID_SHIFT; }
+
+  /**
+   * Returns the card kind of the specified card code. Path cards take the kinds below
+   * {@link PackedState#BOARD_ACTION_KIND} by their path type's ordinal, followed by the
+   * board-action and the player-action cards
+   *
+   * @param code the card code
+   * @return the card kind
+   */
+  public static int kind(int code) { return code & KIND_MASK; }
+
+  /**
+   * Returns the board width, the distance between the start and goal columns plus one
+   *
+   * @return the width
+   */
+  public final int width() { return data[WIDTH]; }
+
+  /**
+   * Returns the board height, the distance between the top and bottom goals plus one
+   *
+   * @return the height
+   */
+  public final int height() { return data[HEIGHT]; }
+
+  /**
+   * Checks whether the round is played on a {@link SparseBoard}
+   *
+   * @return <code>true</code> if the board is sparse
+   */
+  public final boolean sparse() { return (data[FLAGS] & SPARSE) != 0; }
+
+  /**
+   * Returns the number of players
+   *
+   * @return the number of players
+   */
+  public final int numPlayers() { return data[NUM_PLAYERS]; }
+
+  /**
+   * Returns the current player index
+   *
+   * @return the current player index
+   */
+  public final int currentPlayerIndex() { return data[CURRENT_PLAYER]; }
+
+  /**
+   * Returns the game's started flag
+   *
+   * @return the started flag
+   */
+  public final boolean started() { return (data[FLAGS] & STARTED) != 0; }
+
+  /**
+   * Returns the game's finished flag
+   *
+   * @return the finished flag
+   */
+  public final boolean finished() { return (data[FLAGS] & FINISHED) != 0; }
+
+  /**
+   * Returns the goal type on the specified goal position
+   *
+   * @param position the goal position
+   * @return the goal type, or <code>null</code> if the board has no goals yet
+   */
+  public final GoalType goal(Board.GoalPosition position) {
+    if (data[GOALS] == EMPTY) return null;
+    return GOAL_TYPES[(data[GOALS] >>> (position.ordinal() * 4)) & 0xf];
+  }
+
+  /**
+   * Returns the card code of the path card at the specified <code>(x, y)</code> position
+   *
+   * @param x the x position
+   * @param y the y position
+   * @return the card code, or {@link PackedState#EMPTY} if the cell has no path card
+   */
+  public final int cardAt(int x, int y) {
+    for (int i = 0; i < placedCount(); i++) {
+      if (placedX(i) == x && placedY(i) == y) return placedCardAt(i);
+    }
+    return EMPTY;
+  }
+
+  /**
+   * Returns the number of path cards on the board
+   *
+   * @return the number of placed cards
+   */
+  public final int placedCount() { return data[PLACED]; }
+
+  /**
+   * Returns the x position of a path card on the board
+   *
+   * @param index the card's index, in position order
+   * @return the x position
+   */
+  public final int placedX(int index) { return data[HEADER + index * PLACED_LENGTH + PLACED_X]; }
+
+  /**
+   * Returns the y position of a path card on the board
+   *
+   * @param index the card's index, in position order
+   * @return the y position
+   */
+  public final int placedY(int index) { return data[HEADER + index * PLACED_LENGTH + PLACED_Y]; }
+
+  /**
+   * Returns the card code of a path card on the board
+   *
+   * @param index the card's index, in position order
+   * @return the card code
+   */
+  public final int placedCardAt(int index) { return data[HEADER + index * PLACED_LENGTH + PLACED_CODE]; }
+
+  /**
+   * Returns the number of cards left in the deck
+   *
+   * @return the deck size
+   */
+  public final int deckSize() { return data[DECK_SIZE]; }
+
+  /**
+   * Returns the card code of a card in the deck, counted from the bottom
+   *
+   * @param index the card's index, where <code>deckSize() - 1</code> is the top card
+   * @return the card code
+   */
+  public final int deckCardAt(int index) { return data[deckOffset + index]; }
+
+  /**
+   * Returns the role of the specified player
+   *
+   * @param playerIndex the player's index
+   * @return the role
+   */
+  public final Player.Role role(int playerIndex) { return ROLES[data[playerOffset(playerIndex) + ROLE]]; }
+
+  /**
+   * Returns the sabotaged tools of the specified player
+   *
+   * @param playerIndex the player's index
+   * @return the sabotaged tools, as a bit set of {@link Tool} ordinals
+   */
+  public final int tools(int playerIndex) { return data[playerOffset(playerIndex) + TOOLS_MASK]; }
+
+  /**
+   * Returns the hand size of the specified player
+   *
+   * @param playerIndex the player's index
+   * @return the hand size
+   */
+  public final int handSize(int playerIndex) { return data[playerOffset(playerIndex) + HAND_SIZE]; }
+
+  /**
+   * Returns the card code of a card in the hand of the specified player
+   *
+   * @param playerIndex the player's index
+   * @param index       the card's index
+   * @return the card code
+   */
+  public final int handCardAt(int playerIndex, int index) {
+    return data[playerOffset(playerIndex) + PLAYER_HEADER + index];
+  }
+
+  /**
+   * Returns the offset of the specified player's block
+   *
+   * @param playerIndex the player's index
+   * @return the offset
+   */
+  private int playerOffset(int playerIndex) { return playersOffset + playerIndex * playerLength; }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+    return Arrays.equals(data, ((PackedState) o).data);
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(data);
+  }
+}
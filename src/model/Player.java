@@ -5,6 +5,7 @@ import model.cards.Card;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.Random;
 import java.util.Set;
 
 /**
@@ -15,6 +16,9 @@ public abstract class Player extends GameObserver {
   /** The {@link Player.Role} enum represents the two roles in the game */
   public enum Role {SABOTEUR, GOLD_MINER}
 
+  /** All tools */
+  private static final Tool[] TOOLS = Tool.values();
+
   /** The player's name */
   private final String name;
   /** The player's index */
@@ -25,8 +29,40 @@ public abstract class Player extends GameObserver {
   private Role role;
   /** Sabotaged tools of the player */
   private Set<Tool> sabotaged;
+  /** The Zobrist hash of the sabotaged tools, see {@link Zobrist} */
+  private long toolHash;
   /** Discarded cards of the player */
   private ArrayList<Card> discarded;
+  /** The player's random source, reseeded from the session's seed every round */
+  private volatile Random random = new Random();
+  /** The round frozen on the game's thread for the pending decision, or <code>null</code> if none */
+  private volatile Snapshot snapshot;
+
+  /**
+   * The {@link Snapshot} class holds a round packed on the game's thread, along with the goals
+   * the player had seen, so both are read together by the decision
+   */
+  private static final class Snapshot {
+    /** The thread deciding on the game's thread, which packs the round on demand, or <code>null</code> */
+    private final Thread owner;
+    /** The goals the player had seen, as a bit set of {@link Board.GoalPosition} ordinals */
+    private final int knownGoals;
+    /** The packed round, which is never modified, or <code>null</code> until the owner packs it */
+    private PackedState state;
+
+    /**
+     * Creates a {@link Snapshot} object
+     *
+     * @param owner      the thread packing the round on demand, or <code>null</code>
+     * @param knownGoals the goals the player had seen
+     * @param state      the packed round, or <code>null</code> to be packed on demand
+     */
+    private Snapshot(Thread owner, int knownGoals, PackedState state) {
+      this.owner = owner;
+      this.knownGoals = knownGoals;
+      this.state = state;
+    }
+  }
 
   /**
    * Creates a {@link Player} object based on the specified name
@@ -48,9 +84,20 @@ public abstract class Player extends GameObserver {
     this.role = role;
     this.cards = cards;
     this.sabotaged = new HashSet<>();
+    this.toolHash = 0;
     this.discarded = new ArrayList<>();
   }
 
+  /**
+   * Replaces the player's random source with one of the specified seed. A new source is
+   * created, so a decision still running from an earlier round keeps its own
+   *
+   * @param seed the seed
+   */
+  final void reseed(long seed) {
+    this.random = new Random(seed);
+  }
+
   /**
    * Adds a card to the player's hand
    *
@@ -100,6 +147,7 @@ public abstract class Player extends GameObserver {
 
     // Mark tool as sabotaged
     this.sabotaged.add(tool);
+    this.toolHash ^= Zobrist.tool(index, tool);
   }
 
   /**
@@ -128,7 +176,9 @@ public abstract class Player extends GameObserver {
     }
 
     // Mark tools as repaired
-    for (Tool tool : tools) sabotaged.remove(tool);
+    for (Tool tool : tools) {
+      if (sabotaged.remove(tool)) this.toolHash ^= Zobrist.tool(index, tool);
+    }
   }
 
   /**
@@ -138,6 +188,38 @@ public abstract class Player extends GameObserver {
    */
   final void addDiscard(Card card) { if (card != null) this.discarded.add(card); }
 
+  /**
+   * Inserts a card back into the player's hand at the specified index, used to undo a move
+   *
+   * @param index the card's index
+   * @param card  the card to be inserted
+   */
+  final void insertCardAt(int index, Card card) { this.cards.add(index, card); }
+
+  /**
+   * Takes and returns the last card of the player's hand, used to undo a draw
+   *
+   * @return the taken card
+   */
+  final Card takeLastCard() { return this.cards.remove(cards.size() - 1); }
+
+  /**
+   * Removes the last card of the discarded set, used to undo a discard
+   */
+  final void removeLastDiscard() { this.discarded.remove(discarded.size() - 1); }
+
+  /**
+   * Sets whether the specified tool is sabotaged, without any rule check. Used to undo
+   * a sabotage or a repair
+   *
+   * @param tool      the tool
+   * @param sabotaged <code>true</code> if the tool is to be sabotaged
+   */
+  final void setSabotaged(Tool tool, boolean sabotaged) {
+    boolean changed = sabotaged ? this.sabotaged.add(tool) : this.sabotaged.remove(tool);
+    if (changed) this.toolHash ^= Zobrist.tool(index, tool);
+  }
+
   /**
    * Returns the sabotaged tools of the player
    *
@@ -147,6 +229,15 @@ public abstract class Player extends GameObserver {
     return sabotaged.toArray(new Tool[0]);
   }
 
+  /**
+   * Returns the Zobrist hash of the player's sabotaged tools, maintained on every
+   * sabotage and repair
+   *
+   * @return the sabotaged tools' hash
+   * @see Zobrist
+   */
+  public final long toolHash() { return toolHash; }
+
   /**
    * Checks if the player is sabotaged
    *
@@ -172,6 +263,19 @@ public abstract class Player extends GameObserver {
    */
   public final boolean isSabotageable(Tool tool) { return !isSabotaged(tool); }
 
+  /**
+   * Returns the sabotaged tools of the player as a bit set
+   *
+   * @return the sabotaged tools, as a bit set of {@link Tool} ordinals
+   */
+  final int toolMask() {
+    int mask = 0;
+    for (Tool tool : TOOLS) {
+      if (sabotaged.contains(tool)) mask |= 1 << tool.ordinal();
+    }
+    return mask;
+  }
+
   /**
    * Checks if the specified tools are repairable. Returns <code>false</code>
    * if none of the specified tools are sabotaged
@@ -230,4 +334,81 @@ public abstract class Player extends GameObserver {
    * @return the player's discarded cards
    */
   protected final ArrayList<Card> discarded() { return this.discarded; }
+
+  /**
+   * Returns the player's random source. The game reseeds it every round from its session
+   * seed, see {@link GameLogicController#setSeed(long)}, so a player drawing all of its
+   * randomness from it replays the same moves when the session is replayed
+   *
+   * @return the random source
+   */
+  protected final Random random() { return this.random; }
+
+  /**
+   * Freezes the current round for the decision about to be made. Must be called on the game's
+   * thread, before the decision is handed to another thread: {@link Player#packedState(Random)}
+   * then deals copies of the frozen round, so a decision still running after its timeout never
+   * reads the live game while the game moves on
+   */
+  protected final void freezeState() {
+    this.snapshot = new Snapshot(null, knownGoalMask(), PackedState.pack(game().state()));
+  }
+
+  /**
+   * Freezes the current round for a decision made right away on the game's thread. The round
+   * is only packed if the decision asks for it, and only the calling thread may ask, so a
+   * decision abandoned earlier cannot read the live game either
+   */
+  protected final void freezeStateOnDemand() {
+    this.snapshot = new Snapshot(Thread.currentThread(), knownGoalMask(), null);
+  }
+
+  /**
+   * Packs the round as this player sees it. Everything the player cannot see is dealt again
+   * at random: the deck order, the other players' hands and roles, and the goals missing from
+   * {@link GameObserver#knownGoals()}. Each call samples a new deal of the round frozen by
+   * {@link Player#freezeState()}, so a Monte Carlo search can average over many of them.
+   * A player that never froze the round, and decides on the game's thread, gets the live round
+   *
+   * @param random the random source of the deal
+   * @return the packed round
+   * @throws IllegalStateException when the round was frozen for a decision on another thread
+   * @see PackedState#unpack()
+   */
+  protected final PackedState packedState(Random random) {
+    Snapshot frozen = this.snapshot;
+    if (frozen == null) return PackedState.pack(game().state()).determinize(index, knownGoalMask(), random);
+    if (frozen.owner != null) {
+      if (frozen.owner != Thread.currentThread()) {
+        throw new IllegalStateException("The round is frozen for a decision on another thread");
+      }
+      if (frozen.state == null) frozen.state = PackedState.pack(game().state());
+    }
+    return frozen.state.copy().determinize(index, frozen.knownGoals, random);
+  }
+
+  /**
+   * Returns the goals the player has seen
+   *
+   * @return the seen goals, as a bit set of {@link Board.GoalPosition} ordinals
+   */
+  private int knownGoalMask() {
+    int goals = 0;
+    for (Board.GoalPosition position : knownGoals().keySet()) goals |= 1 << position.ordinal();
+    return goals;
+  }
+
+  /**
+   * Returns a detached copy of the round as this player sees it, to be searched with
+   * {@link GameLogicController#apply(GameState, Move)} and
+   * {@link GameLogicController#undo(GameState, UndoRecord)}. The copy shares nothing with
+   * the live game, so a search left running past its decision cannot disturb the game, and
+   * the hidden information is dealt again at random, see {@link Player#packedState(Random)}
+   *
+   * @param random the random source of the deal
+   * @return the game state copy
+   */
+  protected final GameState searchState(Random random) {
+    return packedState(random).unpack();
+  }
 }
@@ -1,17 +1,23 @@
 package model;
 
-import java.util.Objects;
-
 /**
  * The {@link Position} class represents a position in the board.
  * <p>
  * The top-left most position is (0,0). <code>x</code> increases to the right
  * and <code>y</code> increases to the bottom
  * </p>
+ * <p>
+ * Positions obtained from a {@link Grid} are canonical: they are shared, know their
+ * packed coordinate, and return their canonical neighbours without allocating.
+ * </p>
  */
 @SuppressWarnings("WeakerAccess")
 public class Position {
   public final int x, y;
+  /** The packed coordinate in the owning grid, or <code>-1</code> if not canonical */
+  private final int packed;
+  /** The canonical top, right, bottom, and left neighbours, if canonical */
+  private Position[] neighbours;
 
   /**
    * Creates a <code>Position</code> object representing the specified
@@ -20,35 +26,71 @@ public class Position {
    * @param x the x position
    * @param y the y position
    */
-  public Position(int x, int y) { this.x = x; this.y = y; }
+  public Position(int x, int y) { this(x, y, -1); }
+
+  /**
+   * Creates a canonical <code>Position</code> object for a {@link Grid}
+   *
+   * @param x      the x position
+   * @param y      the y position
+   * @param packed the packed coordinate
+   */
+  Position(int x, int y, int packed) { this.x = x; this.y = y; this.packed = packed; }
+
+  /**
+   * Links the canonical neighbours of this position
+   *
+   * @param neighbours the top, right, bottom, and left neighbours, <code>null</code> if outside the grid
+   */
+  final void link(Position[] neighbours) { this.neighbours = neighbours; }
+
+  /**
+   * Returns the packed coordinate of this position in its grid
+   *
+   * @return the packed coordinate, or <code>-1</code> if the position is not canonical
+   */
+  public final int packed() { return packed; }
+
+  /**
+   * Returns the neighbour in the specified direction
+   *
+   * @param dir the direction
+   * @param dx  the x offset of the neighbour
+   * @param dy  the y offset of the neighbour
+   * @return the neighbour
+   */
+  private Position neighbour(int dir, int dx, int dy) {
+    Position n = neighbours == null ? null : neighbours[dir];
+    return n != null ? n : new Position(x + dx, y + dy);
+  }
 
   /**
    * Returns a position above the current one
    *
    * @return the top position
    */
-  public final Position top() { return new Position(x, y - 1); }
+  public final Position top() { return neighbour(Grid.TOP, 0, -1); }
 
   /**
    * Returns a position on the right of the current one
    *
    * @return the position on the right
    */
-  public final Position right() { return new Position(x + 1, y); }
+  public final Position right() { return neighbour(Grid.RIGHT, 1, 0); }
 
   /**
    * Returns a position below the current one
    *
    * @return the position on the bottom
    */
-  public final Position bottom() { return new Position(x, y + 1); }
+  public final Position bottom() { return neighbour(Grid.BOTTOM, 0, 1); }
 
   /**
    * Returns a position on the left of the current one
    *
    * @return the position on the left
    */
-  public final Position left() { return new Position(x - 1, y); }
+  public final Position left() { return neighbour(Grid.LEFT, -1, 0); }
 
   @Override
   public final boolean equals(Object o) {
@@ -60,7 +102,7 @@ public class Position {
 
   @Override
   public final int hashCode() {
-    return Objects.hash(x, y);
+    return 31 * x + y;
   }
 
   @Override
@@ -0,0 +1,215 @@
+package model;
+
+import model.cards.OrientedPath;
+import model.cards.PathCard;
+
+/**
+ * The {@link ReadOnlyBoard} interface represents a read-only view of a game board.
+ * <p>
+ * All accessors read the board's state directly, without copying cells or side arrays,
+ * so observers and AIs can inspect the board as often as they like. None of them can
+ * be used to modify the board.
+ * </p>
+ *
+ * @see Board
+ * @see SparseBoard
+ * @see GameObserver#board()
+ */
+@SuppressWarnings("unused")
+public interface ReadOnlyBoard {
+  /**
+   * Returns the width of the board
+   *
+   * @return the board's width
+   */
+  int width();
+
+  /**
+   * Returns the height of the board
+   *
+   * @return the board's height
+   */
+  int height();
+
+  /**
+   * Returns the mutation version of the board
+   *
+   * @return the board's version
+   */
+  long version();
+
+  /**
+   * Returns the Zobrist hash of the board, covering the goal layout and every path card
+   * with its position and rotation
+   *
+   * @return the board's hash
+   * @see Zobrist
+   */
+  long hash();
+
+  /**
+   * Checks whether the specified position is inside the board
+   *
+   * @param x the x position to be checked
+   * @param y the y position to be checked
+   * @return a boolean representing if (x,y) is in the board
+   */
+  boolean isInBoard(int x, int y);
+
+  /**
+   * Returns the side value of the cell at <code>(x, y)</code> in the specified direction
+   *
+   * @param x   the x position
+   * @param y   the y position
+   * @param dir the direction, see {@link Grid#TOP}, {@link Grid#RIGHT}, {@link Grid#BOTTOM}, and {@link Grid#LEFT}
+   * @return the side value
+   */
+  Cell.Side sideAt(int x, int y, int dir);
+
+  /**
+   * Checks whether the cell at <code>(x, y)</code> contains a card, including the start and goal cards
+   *
+   * @param x the x position
+   * @param y the y position
+   * @return <code>true</code> if the cell contains a card
+   */
+  boolean hasCardAt(int x, int y);
+
+  /**
+   * Returns the path type of the card placed at <code>(x, y)</code>
+   *
+   * @param x the x position
+   * @param y the y position
+   * @return the path type, or <code>null</code> if no path card was placed there
+   */
+  PathCard.Type cardTypeAt(int x, int y);
+
+  /**
+   * Returns the rotation of the card placed at <code>(x, y)</code>
+   *
+   * @param x the x position
+   * @param y the y position
+   * @return <code>true</code> if a rotated path card was placed there
+   */
+  boolean isRotatedAt(int x, int y);
+
+  /**
+   * Checks whether the specified <code>(x, y)</code> position is reachable from
+   * the board's starting position
+   *
+   * @param x the targeted x position
+   * @param y the targeted y position
+   * @return a boolean representing whether the targeted position is reachable
+   */
+  boolean isReachable(int x, int y);
+
+  /**
+   * Checks whether the specified <code>(x, y)</code> position is destroyable
+   *
+   * @param x the targeted x position
+   * @param y the targeted y position
+   * @return a boolean representing whether the targeted position is destroyable
+   */
+  boolean isDestroyable(int x, int y);
+
+  /**
+   * Checks whether a path card of the specified type and rotation is placeable at the
+   * specified <code>(x, y)</code> position
+   *
+   * @param type    the path type
+   * @param rotated <code>true</code> if the card is rotated
+   * @param x       the target x position
+   * @param y       the target y position
+   * @return a boolean representing a card's placeability
+   */
+  boolean isCardPlaceableAt(PathCard.Type type, boolean rotated, int x, int y);
+
+  /**
+   * Checks whether the specified oriented path is placeable at the specified
+   * <code>(x, y)</code> position
+   *
+   * @param path the oriented path
+   * @param x    the target x position
+   * @param y    the target y position
+   * @return a boolean representing a card's placeability
+   */
+  default boolean isCardPlaceableAt(OrientedPath path, int x, int y) {
+    return isCardPlaceableAt(path.type(), path.rotated(), x, y);
+  }
+
+  /**
+   * Returns the minimum number of cards that must be placed for a card on <code>(x, y)</code>
+   * to join the connected network, ignoring side constraints
+   *
+   * @param x the x position
+   * @param y the y position
+   * @return the distance, or <code>-1</code> if out of bounds or unreachable
+   */
+  int distanceAt(int x, int y);
+
+  /**
+   * Returns the minimum number of cards that must be placed to connect the network to the
+   * specified goal, ignoring side constraints
+   *
+   * @param goal the goal position
+   * @return the distance, <code>0</code> if the goal is reached, or <code>-1</code> if it cannot be reached
+   */
+  int goalDistance(Board.GoalPosition goal);
+
+  /**
+   * Returns what {@link ReadOnlyBoard#goalDistance(Board.GoalPosition)} would be after placing a
+   * path card of the specified type and rotation on <code>(x, y)</code>
+   *
+   * @param type    the path type
+   * @param rotated <code>true</code> if the card is rotated
+   * @param x       the target x position
+   * @param y       the target y position
+   * @param goal    the goal position
+   * @return the distance after the placement, or <code>-1</code> if the card is not placeable there
+   *         or the goal cannot be reached
+   */
+  int goalDistanceAfter(PathCard.Type type, boolean rotated, int x, int y, Board.GoalPosition goal);
+
+  /**
+   * Returns what {@link ReadOnlyBoard#goalDistance(Board.GoalPosition)} would be after placing the
+   * specified oriented path on <code>(x, y)</code>
+   *
+   * @param path the oriented path
+   * @param x    the target x position
+   * @param y    the target y position
+   * @param goal the goal position
+   * @return the distance after the placement, or <code>-1</code> if the card is not placeable there
+   *         or the goal cannot be reached
+   */
+  default int goalDistanceAfter(OrientedPath path, int x, int y, Board.GoalPosition goal) {
+    return goalDistanceAfter(path.type(), path.rotated(), x, y, goal);
+  }
+
+  /**
+   * Returns a {@link Position} representing the starting cell position
+   *
+   * @return the position of the starting cell
+   */
+  Position startPosition();
+
+  /**
+   * Returns a {@link Position} representing the top goal's position
+   *
+   * @return the position of the top goal
+   */
+  Position topGoalPosition();
+
+  /**
+   * Returns a {@link Position} representing the middle goal's position
+   *
+   * @return the position of the middle goal
+   */
+  Position middleGoalPosition();
+
+  /**
+   * Returns a {@link Position} representing the bottom goal's position
+   *
+   * @return the position of the bottom goal
+   */
+  Position bottomGoalPosition();
+}
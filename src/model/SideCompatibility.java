@@ -0,0 +1,108 @@
+package model;
+
+import model.cards.OrientedPath;
+import model.cards.PathCard;
+
+/**
+ * The {@link SideCompatibility} class contains the precomputed lookup tables used to
+ * check whether a path card fits next to its neighbours.
+ * <p>
+ * A card side fits a neighbouring side when the neighbour is empty, when both have the
+ * same value, or when their {@link Cell.Side#val()} and {@link PathCard.Side#val()} do
+ * not sum below zero. In practice, open sides (path or deadend) only fit open sides,
+ * and rock only fits rock.
+ * </p>
+ * <p>
+ * An orientation is a path type together with its rotation, numbered
+ * <code>type.ordinal() * 2 + (rotated ? 1 : 0)</code> as in {@link OrientedPath#index()}. A signature is an 8-bit value
+ * holding, for each direction, the {@link Cell.Side} ordinal of the neighbouring side
+ * facing the cell, at bits <code>2 * direction</code>.
+ * </p>
+ */
+final class SideCompatibility {
+  /** The number of distinct orientations */
+  static final int ORIENTATIONS = OrientedPath.COUNT;
+  /** The signature of a cell without any neighbouring card */
+  static final int EMPTY_SIGNATURE = 0x55 * Cell.Side.EMPTY.ordinal();
+
+  /** Compatibility of a card side with a neighbouring cell side, indexed by their ordinals */
+  private static final boolean[][] COMPATIBLE =
+    new boolean[PathCard.Side.values().length][Cell.Side.values().length];
+  /** Accepted signatures of every orientation, as a 256-bit set spread over 4 words */
+  private static final long[] ACCEPTS = new long[ORIENTATIONS * 4];
+
+  static {
+    for (PathCard.Side card : PathCard.Side.values()) {
+      for (Cell.Side cell : Cell.Side.values()) {
+        COMPATIBLE[card.ordinal()][cell.ordinal()] =
+          cell == Cell.Side.EMPTY || cell.val() == card.val() || cell.val() + card.val() >= 0;
+      }
+    }
+    for (int orientation = 0; orientation < ORIENTATIONS; orientation++) {
+      int code = OrientedPath.of(orientation).code();
+      for (int signature = 0; signature < 256; signature++) {
+        boolean fits = true;
+        for (int dir = 0; dir < 4 && fits; dir++) {
+          fits = COMPATIBLE[(code >>> (dir * 2)) & 3][(signature >>> (dir * 2)) & 3];
+        }
+        if (fits) ACCEPTS[orientation * 4 + (signature >>> 6)] |= 1L << signature;
+      }
+    }
+  }
+
+  private SideCompatibility() {}
+
+  /**
+   * Returns the orientation number of the specified path type and rotation
+   *
+   * @param type    the path type
+   * @param rotated the rotation
+   * @return the orientation number
+   */
+  static int orientation(PathCard.Type type, boolean rotated) {
+    return type.ordinal() * 2 + (rotated ? 1 : 0);
+  }
+
+  /**
+   * Returns the orientation number of the specified path card
+   *
+   * @param card the path card
+   * @return the orientation number
+   */
+  static int orientation(PathCard card) {
+    return card.orientation().index();
+  }
+
+  /**
+   * Returns the side code of the specified orientation, holding the
+   * {@link PathCard.Side} ordinal of each side at bits <code>2 * direction</code>
+   *
+   * @param orientation the orientation number
+   * @return the side code
+   */
+  static int code(int orientation) {
+    return OrientedPath.of(orientation).code();
+  }
+
+  /**
+   * Checks whether a card side fits the neighbouring cell side
+   *
+   * @param card the card side
+   * @param cell the neighbouring cell side
+   * @return <code>true</code> if both sides are compatible
+   */
+  static boolean compatible(PathCard.Side card, Cell.Side cell) {
+    return COMPATIBLE[card.ordinal()][cell.ordinal()];
+  }
+
+  /**
+   * Checks whether the specified orientation fits a cell with the specified neighbour signature
+   *
+   * @param orientation the orientation number
+   * @param signature   the cell's neighbour signature
+   * @return <code>true</code> if every side is compatible
+   */
+  static boolean accepts(int orientation, int signature) {
+    return (ACCEPTS[orientation * 4 + (signature >>> 6)] & (1L << signature)) != 0;
+  }
+}
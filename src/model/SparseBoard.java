@@ -0,0 +1,820 @@
+package model;
+
+import model.cards.OrientedPath;
+import model.cards.PathCard;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The {@link SparseBoard} class represents a growable Saboteur game board.
+ * <p>
+ * Unlike {@link Board}, a sparse board is not bound to a fixed bounding box: path cards
+ * can be placed at any coordinate, including negative ones, so the maze can grow past
+ * the start and goal cards. Only the cells holding a card or touching the connected network are allocated,
+ * in a {@link CellTable}, so reachability, placement, and destroyable queries scale with
+ * the number of placed cards rather than with the maze's bounding box.
+ * </p>
+ * <p>
+ * The start and goal cards are laid out as on a {@link Board} of the same dimension.
+ * Positions are only bounded by what a {@link PackedMove} can hold.
+ * </p>
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public final class SparseBoard extends GameBoard {
+  /** Marks a cell reachable from the starting cell */
+  private static final int REACHABLE = 1;
+  /** Marks an empty, reachable cell a path card can be placed on */
+  private static final int FRONTIER = 2;
+  /** Marks a cell already visited by a what-if search */
+  private static final int VISITED = 4;
+  /** Cached path types, indexed by ordinal */
+  private static final PathCard.Type[] PATH_TYPES = PathCard.Type.values();
+  /** The x offset of the neighbour in each direction */
+  private static final int[] DX = {0, 1, 0, -1};
+  /** The y offset of the neighbour in each direction */
+  private static final int[] DY = {-1, 0, 1, 0};
+  /** The margin around the bounding box searched by the distance field */
+  private static final int MARGIN = 2;
+
+  /** The touched cells of the board */
+  private final CellTable cells = new CellTable();
+  /** The mutation version of the board, incremented on every change */
+  private long version;
+  /** The Zobrist hash of the goal layout and every path card, see {@link Zobrist} */
+  private long hash;
+  /** The number of path cards on the board */
+  private int cards;
+  /** The bounding box of the start, goal, and path cards */
+  private int minX, minY, maxX, maxY;
+  /** The goals reachable from the starting cell, as a bit set of {@link Board.GoalPosition} ordinals */
+  private int reachedGoals;
+  /** The goals holding the gold, as a bit set of {@link Board.GoalPosition} ordinals */
+  private int goldGoals;
+  /** Scratch queue of packed keys used by the flood fill and the what-if search */
+  private long[] queue = new long[16];
+  /** Scratch list of the slots visited by the what-if search */
+  private int[] visited = new int[16];
+  /** Scratch list of the sources and breadth-first order of the distance searches */
+  private int[] sources = new int[16], order = new int[16];
+  /** Scratch distance field of the what-if search */
+  private int[] whatIf = new int[16];
+  /** The cached distance field, over the bounding box grown by <code>MARGIN</code> */
+  private int[] distances = new int[16];
+  /** The origin and dimension of the distance field's region */
+  private int distanceX, distanceY, distanceHeight, distanceWidth;
+  /** The cached distance of each goal, indexed by {@link Board.GoalPosition} ordinal */
+  private final int[] goalDistances = new int[Board.GoalPosition.values().length];
+  /** The version the distance field was computed at */
+  private long distanceVersion = -1;
+  /** The top goal card */
+  private GoalType topGoal;
+  /** The middle goal card */
+  private GoalType middleGoal;
+  /** The bottom goal card */
+  private GoalType bottomGoal;
+  /** The starting cell position */
+  private final Position start;
+  /** The top goal's position */
+  private final Position topGoalPos;
+  /** The middle goal's position */
+  private final Position middleGoalPos;
+  /** The bottom goal's position */
+  private final Position bottomGoalPos;
+
+  /**
+   * Creates a {@link SparseBoard} object with the start and goal cards laid out
+   * as on the default <code>DEFAULT_WIDTH</code> &times; <code>DEFAULT_HEIGHT</code> board
+   */
+  public SparseBoard() {
+    this(Board.DEFAULT_WIDTH, Board.DEFAULT_HEIGHT);
+  }
+
+  /**
+   * Creates a {@link SparseBoard} object with the start and goal cards laid out
+   * as on a {@link Board} of the specified dimension
+   *
+   * @param width  the distance between the start and goal columns, plus one
+   * @param height the distance between the top and bottom goals, plus one
+   * @throws IllegalArgumentException when the dimension is below <code>MIN_WIDTH</code> &times; <code>MIN_HEIGHT</code>
+   *                                  or the goals cannot be packed in a move
+   */
+  public SparseBoard(int width, int height) {
+    if (width < Board.MIN_WIDTH || height < Board.MIN_HEIGHT
+        || width > PackedMove.MAX_POSITION + 1 || height > PackedMove.MAX_POSITION + 1) {
+      String msgFormat = "Invalid board size %dx%d, expected between %dx%d and %dx%d";
+      throw new IllegalArgumentException(String.format(msgFormat, width, height, Board.MIN_WIDTH,
+        Board.MIN_HEIGHT, PackedMove.MAX_POSITION + 1, PackedMove.MAX_POSITION + 1));
+    }
+    this.start = new Position(0, height / 2);
+    this.topGoalPos = new Position(width - 1, 0);
+    this.middleGoalPos = new Position(width - 1, height / 2);
+    this.bottomGoalPos = new Position(width - 1, height - 1);
+    this.minX = 0;
+    this.minY = 0;
+    this.maxX = width - 1;
+    this.maxY = height - 1;
+  }
+
+  /**
+   * Initialize the board by placing goal cards
+   *
+   * @param topGoal the top goal
+   * @param midGoal the middle goal
+   * @param botGoal the bottom goal
+   */
+  final void initialize(GoalType topGoal, GoalType midGoal, GoalType botGoal) {
+    // Open starting and goal cell sides
+    this.openAllSidesAt(start);
+    this.openAllSidesAt(topGoalPos);
+    this.openAllSidesAt(middleGoalPos);
+    this.openAllSidesAt(bottomGoalPos);
+
+    // Set goals
+    this.topGoal = topGoal;
+    this.middleGoal = midGoal;
+    this.bottomGoal = botGoal;
+    this.hash ^= Zobrist.goal(Board.GoalPosition.TOP, topGoal)
+                 ^ Zobrist.goal(Board.GoalPosition.MIDDLE, midGoal)
+                 ^ Zobrist.goal(Board.GoalPosition.BOTTOM, botGoal);
+    this.goldGoals = (topGoal == GoalType.GOLD ? 1 << Board.GoalPosition.TOP.ordinal() : 0)
+                     | (midGoal == GoalType.GOLD ? 1 << Board.GoalPosition.MIDDLE.ordinal() : 0)
+                     | (botGoal == GoalType.GOLD ? 1 << Board.GoalPosition.BOTTOM.ordinal() : 0);
+
+    this.reflood();
+    this.version++;
+  }
+
+  /**
+   * Attempts to place a path card on the specified <code>(x, y)</code> position
+   *
+   * @param card the path card to be placed
+   * @param x    the x position to be placed on
+   * @param y    the y position to be placed on
+   * @throws GameException when card is not placeable at the specified position
+   */
+  final void placePathCardAt(PathCard card, int x, int y) throws GameException {
+    if (!isInBoard(x, y)) {
+      String msgFormat = "Position (%d, %d) is out of bounds";
+      throw new GameException(msgFormat, x, y);
+    }
+    if (!isCardPlaceableAt(card, x, y)) {
+      String msgFormat = "Card cannot be placed at position (%d, %d)";
+      throw new GameException(msgFormat, x, y);
+    }
+    this.putPathCardAt(card, x, y);
+  }
+
+  @Override
+  final void putPathCardAt(PathCard card, int x, int y) {
+    int slot = cells.touch(x, y);
+    cells.cell(slot).placePathCard(card);
+    cells.setOrientation(slot, SideCompatibility.orientation(card));
+    this.hash ^= Zobrist.cell(x, y, SideCompatibility.orientation(card));
+    this.cards++;
+    this.minX = Math.min(minX, x);
+    this.minY = Math.min(minY, y);
+    this.maxX = Math.max(maxX, x);
+    this.maxY = Math.max(maxY, y);
+
+    // Only the target's new path sides can extend the reachable set, and only if it is reachable
+    if ((cells.flags(slot) & REACHABLE) != 0) {
+      cells.setFlags(slot, REACHABLE);
+      this.queue[0] = CellTable.key(x, y);
+      this.propagate(1);
+      this.updateReachedGoals();
+    }
+    this.version++;
+  }
+
+  /**
+   * Attempts to place a path card on the specified <code>position</code>
+   *
+   * @param card   the path card to be placed
+   * @param target the position to be placed on
+   * @throws GameException when card is not placeable at the specified position
+   */
+  final void placePathCardAt(PathCard card, Position target) throws GameException {
+    this.placePathCardAt(card, target.x, target.y);
+  }
+
+  /**
+   * Removes a card from the specified <code>(x, y)</code> target
+   *
+   * @param x the targeted x position
+   * @param y the targeted y position
+   * @throws GameException when position equals start/goal, or has empty cell
+   */
+  final void removeCardAt(int x, int y) throws GameException {
+    this.removeCardAt(new Position(x, y));
+  }
+
+  /**
+   * Removes a card from the specified <code>target</code>
+   *
+   * @param target the targeted position
+   * @throws GameException when position equals start/goal, or has empty cell
+   */
+  final void removeCardAt(Position target) throws GameException {
+    // Check if not out of bounds
+    if (!isInBoard(target.x, target.y)) {
+      String msgFormat = "Position (%d, %d) is out of bounds";
+      throw new GameException(msgFormat, target.x, target.y);
+    }
+    // Make sure not equal to start
+    if (target.equals(start)) {
+      throw new GameException("Cannot remove starting card");
+    }
+    // Make sure not equal to any of the goal cards
+    if (target.equals(topGoalPos) || target.equals(middleGoalPos) || target.equals(bottomGoalPos)) {
+      throw new GameException("Cannot remove any of the goal cards");
+    }
+    // Check if contains card
+    if (!hasCardAt(target.x, target.y)) {
+      String msgFormat = "Cell at (%d, %d) is empty";
+      throw new GameException(msgFormat, target.x, target.y);
+    }
+    this.clearCardAt(target.x, target.y);
+  }
+
+  @Override
+  final void clearCardAt(int x, int y) {
+    int slot = cells.find(x, y);
+    cells.cell(slot).removeCard();
+    this.hash ^= Zobrist.cell(x, y, cells.orientation(slot));
+    cells.setOrientation(slot, -1);
+    this.cards--;
+
+    // Removing a card can only disconnect cells that were reachable through it
+    if ((cells.flags(slot) & REACHABLE) != 0) {
+      this.reflood();
+      this.updateReachedGoals();
+    }
+    // The bounding box can only shrink if the card was on its edge
+    if (x == minX || x == maxX || y == minY || y == maxY) this.updateBounds();
+    this.version++;
+  }
+
+  @Override
+  final PathCard pathCardAt(int x, int y) {
+    int slot = cells.find(x, y);
+    if (slot < 0 || cells.orientation(slot) < 0) return null;
+    return (PathCard) cells.cell(slot).card();
+  }
+
+  /**
+   * Recomputes the reached goals from the reachable cells
+   */
+  private void updateReachedGoals() {
+    int reached = 0;
+    if (isReachable(topGoalPos.x, topGoalPos.y)) reached |= 1 << Board.GoalPosition.TOP.ordinal();
+    if (isReachable(middleGoalPos.x, middleGoalPos.y)) reached |= 1 << Board.GoalPosition.MIDDLE.ordinal();
+    if (isReachable(bottomGoalPos.x, bottomGoalPos.y)) reached |= 1 << Board.GoalPosition.BOTTOM.ordinal();
+    this.reachedGoals = reached;
+  }
+
+  /**
+   * Opens all sides of the cell at the specified position
+   *
+   * @param pos the position
+   */
+  private void openAllSidesAt(Position pos) {
+    this.cells.cell(cells.touch(pos.x, pos.y)).openAllSides();
+  }
+
+  /** Recomputes the reachable cells and the frontier from the starting cell */
+  private void reflood() {
+    cells.clearFlags();
+    cells.setFlags(cells.touch(start.x, start.y), REACHABLE);
+    this.queue[0] = CellTable.key(start.x, start.y);
+    this.propagate(1);
+    this.updateReachedGoals();
+  }
+
+  /**
+   * Flood-fills through connected path sides from the queued cells, which must already
+   * be marked reachable. A cell joins the reachable set when a reachable cell has a path
+   * side facing it, and joins the frontier if it is empty. Cells a move cannot be packed
+   * for are never allocated
+   *
+   * @param length the number of queued cells
+   */
+  private void propagate(int length) {
+    while (length > 0) {
+      long key = queue[--length];
+      int x = CellTable.x(key), y = CellTable.y(key);
+      Cell cell = cells.cell(cells.find(x, y));
+      for (int dir = 0; dir < 4; dir++) {
+        if (cell.side(dir) != Cell.Side.PATH) continue;
+        int nx = x + DX[dir], ny = y + DY[dir];
+        if (!isInBoard(nx, ny)) continue;
+        int slot = cells.touch(nx, ny);
+        if ((cells.flags(slot) & REACHABLE) != 0) continue;
+        if (cells.cell(slot).hasCard()) {
+          cells.setFlags(slot, REACHABLE);
+          if (length == queue.length) queue = Arrays.copyOf(queue, length * 2);
+          queue[length++] = CellTable.key(nx, ny);
+        } else {
+          cells.setFlags(slot, REACHABLE | FRONTIER);
+        }
+      }
+    }
+  }
+
+  /** Recomputes the bounding box from the start, goal, and path cards */
+  private void updateBounds() {
+    minX = Math.min(start.x, topGoalPos.x);
+    maxX = Math.max(start.x, topGoalPos.x);
+    minY = topGoalPos.y;
+    maxY = bottomGoalPos.y;
+    for (int slot = 0; slot < cells.capacity(); slot++) {
+      Cell cell = cells.cell(slot);
+      if (cell == null || !cell.hasCard()) continue;
+      minX = Math.min(minX, cell.x());
+      minY = Math.min(minY, cell.y());
+      maxX = Math.max(maxX, cell.x());
+      maxY = Math.max(maxY, cell.y());
+    }
+  }
+
+  /**
+   * Returns the flags of the cell at <code>(x, y)</code>
+   *
+   * @param x the x position
+   * @param y the y position
+   * @return the flags, or <code>0</code> if the cell was never touched
+   */
+  private int flagsAt(int x, int y) {
+    int slot = cells.find(x, y);
+    return slot < 0 ? 0 : cells.flags(slot);
+  }
+
+  /**
+   * Returns the leftmost x position of the bounding box of every card on the board
+   *
+   * @return the minimum x position
+   */
+  public final int minX() { return minX; }
+
+  /**
+   * Returns the topmost y position of the bounding box of every card on the board
+   *
+   * @return the minimum y position
+   */
+  public final int minY() { return minY; }
+
+  /**
+   * Returns the rightmost x position of the bounding box of every card on the board
+   *
+   * @return the maximum x position
+   */
+  public final int maxX() { return maxX; }
+
+  /**
+   * Returns the bottommost y position of the bounding box of every card on the board
+   *
+   * @return the maximum y position
+   */
+  public final int maxY() { return maxY; }
+
+  /**
+   * Returns the number of path cards on the board
+   *
+   * @return the number of path cards
+   */
+  public final int cardCount() { return cards; }
+
+  /**
+   * Returns the number of cells allocated by the board
+   *
+   * @return the number of allocated cells
+   */
+  public final int allocatedCells() { return cells.size(); }
+
+  @Override
+  public final int width() { return maxX - minX + 1; }
+
+  @Override
+  public final int height() { return maxY - minY + 1; }
+
+  @Override
+  public final long version() { return version; }
+
+  @Override
+  public final long hash() { return hash; }
+
+  /**
+   * Checks whether the specified position is inside the board. A sparse board only
+   * bounds positions to what a {@link PackedMove} can hold
+   *
+   * @param x the x position to be checked
+   * @param y the y position to be checked
+   * @return a boolean representing if (x,y) is in the board
+   */
+  @Override
+  public final boolean isInBoard(int x, int y) {
+    return x >= PackedMove.MIN_POSITION && x <= PackedMove.MAX_POSITION
+           && y >= PackedMove.MIN_POSITION && y <= PackedMove.MAX_POSITION;
+  }
+
+  @Override
+  public final boolean isGoldReached() {
+    return (reachedGoals & goldGoals) != 0;
+  }
+
+  @Override
+  public final int reachedGoals() { return reachedGoals; }
+
+  @Override
+  public final Cell.Side sideAt(int x, int y, int dir) {
+    int slot = cells.find(x, y);
+    return slot < 0 ? Cell.Side.EMPTY : cells.cell(slot).side(dir);
+  }
+
+  @Override
+  public final boolean hasCardAt(int x, int y) {
+    int slot = cells.find(x, y);
+    return slot >= 0 && cells.cell(slot).hasCard();
+  }
+
+  @Override
+  public final PathCard.Type cardTypeAt(int x, int y) {
+    int slot = cells.find(x, y);
+    int orientation = slot < 0 ? -1 : cells.orientation(slot);
+    return orientation < 0 ? null : PATH_TYPES[orientation >> 1];
+  }
+
+  @Override
+  public final boolean isRotatedAt(int x, int y) {
+    int slot = cells.find(x, y);
+    int orientation = slot < 0 ? -1 : cells.orientation(slot);
+    return orientation >= 0 && (orientation & 1) == 1;
+  }
+
+  @Override
+  public final boolean isReachable(int x, int y) {
+    return (flagsAt(x, y) & REACHABLE) != 0;
+  }
+
+  @Override
+  public final boolean isDestroyable(int x, int y) {
+    return cardTypeAt(x, y) != null;
+  }
+
+  @Override
+  public final boolean isCardPlaceableAt(PathCard.Type type, boolean rotated, int x, int y) {
+    return (flagsAt(x, y) & FRONTIER) != 0
+           && SideCompatibility.accepts(SideCompatibility.orientation(type, rotated), neighbourSignature(x, y));
+  }
+
+  @Override
+  public final MoveStatus placementStatus(OrientedPath path, int x, int y) {
+    if (!isInBoard(x, y)) return MoveStatus.OUT_OF_BOUNDS;
+    int flags = flagsAt(x, y);
+    if ((flags & FRONTIER) != 0) {
+      return SideCompatibility.accepts(path.index(), neighbourSignature(x, y))
+        ? MoveStatus.OK : MoveStatus.SIDE_MISMATCH;
+    }
+    return hasCardAt(x, y) ? MoveStatus.OCCUPIED : MoveStatus.UNREACHABLE;
+  }
+
+  @Override
+  public final MoveStatus removalStatus(int x, int y) {
+    if (!isInBoard(x, y)) return MoveStatus.OUT_OF_BOUNDS;
+    if (cardTypeAt(x, y) != null) return MoveStatus.OK;
+    return hasCardAt(x, y) ? MoveStatus.PROTECTED_CELL : MoveStatus.EMPTY_CELL;
+  }
+
+  @Override
+  final int nextPlaceable(OrientedPath path, int from) {
+    for (int slot = Math.max(from, 0); slot < cells.capacity(); slot++) {
+      if ((cells.flags(slot) & FRONTIER) == 0) continue;
+      Cell cell = cells.cell(slot);
+      if (SideCompatibility.accepts(path.index(), neighbourSignature(cell.x(), cell.y()))) return slot;
+    }
+    return -1;
+  }
+
+  @Override
+  final int nextRemovable(int from) {
+    for (int slot = Math.max(from, 0); slot < cells.capacity(); slot++) {
+      if (cells.cell(slot) != null && cells.orientation(slot) >= 0) return slot;
+    }
+    return -1;
+  }
+
+  @Override
+  final int cellX(int cell) { return cells.cell(cell).x(); }
+
+  @Override
+  final int cellY(int cell) { return cells.cell(cell).y(); }
+
+  /**
+   * Returns the side constraints of the cell at <code>(x, y)</code>, as an 8-bit signature holding
+   * the {@link Cell.Side} ordinal of each neighbouring side facing the cell at bits
+   * <code>2 * direction</code>. Empty neighbours count as {@link Cell.Side#EMPTY}
+   *
+   * @param x the x position
+   * @param y the y position
+   * @return the cell's neighbour signature
+   */
+  public final int neighbourSignature(int x, int y) {
+    int signature = 0;
+    for (int dir = 0; dir < 4; dir++) {
+      Cell.Side side = sideAt(x + DX[dir], y + DY[dir], (dir + 2) & 3);
+      signature |= side.ordinal() << (dir * 2);
+    }
+    return signature;
+  }
+
+  /**
+   * Gets all reachable positions from the starting cell
+   *
+   * @return a set containing all reachable positions
+   */
+  public final Set<Position> getReachable() {
+    return positionsWith(REACHABLE);
+  }
+
+  /**
+   * Gets the placement frontier: every empty cell adjacent to a reachable path side.
+   * Path cards can only ever be placed on frontier cells
+   *
+   * @return a set containing all frontier positions
+   */
+  public final Set<Position> getFrontier() {
+    return positionsWith(FRONTIER);
+  }
+
+  /**
+   * Gets all placeable positions of the specified oriented path
+   *
+   * @param path the oriented path to be placed
+   * @return a set containing all placeable positions
+   */
+  public final Set<Position> getPlaceable(OrientedPath path) {
+    Set<Position> placeable = new HashSet<>();
+    for (int slot = nextPlaceable(path, 0); slot >= 0; slot = nextPlaceable(path, slot + 1)) {
+      placeable.add(new Position(cellX(slot), cellY(slot)));
+    }
+    return placeable;
+  }
+
+  /**
+   * Gets all destroyable path cards on the board
+   *
+   * @return a set containing all destroyable positions
+   */
+  public final Set<Position> getDestroyable() {
+    Set<Position> destroyable = new HashSet<>();
+    for (int slot = nextRemovable(0); slot >= 0; slot = nextRemovable(slot + 1)) {
+      destroyable.add(new Position(cellX(slot), cellY(slot)));
+    }
+    return destroyable;
+  }
+
+  /**
+   * Returns the positions of every cell with all the specified flags
+   *
+   * @param flags the flags
+   * @return a set containing the positions
+   */
+  private Set<Position> positionsWith(int flags) {
+    Set<Position> positions = new HashSet<>();
+    for (int slot = 0; slot < cells.capacity(); slot++) {
+      if (cells.cell(slot) != null && (cells.flags(slot) & flags) == flags) {
+        positions.add(new Position(cells.cell(slot).x(), cells.cell(slot).y()));
+      }
+    }
+    return positions;
+  }
+
+  /**
+   * Returns the distance field value of the specified <code>(x, y)</code> position: the minimum
+   * number of cards that must be placed for a card on <code>(x, y)</code> to join the connected
+   * network. Reachable cells containing a card are at distance <code>0</code>, frontier cells at
+   * <code>1</code>, and cells that cannot be reached through empty cells at <code>-1</code>.
+   * <p>
+   * Unlike the other queries, the field is computed over the bounding box of the board, with a
+   * margin of empty cells around it. It is an optimistic estimate that ignores the side
+   * constraints of the cards that would be placed.
+   * </p>
+   *
+   * @param x the x position
+   * @param y the y position
+   * @return the distance, or <code>-1</code> if unreachable
+   */
+  @Override
+  public final int distanceAt(int x, int y) {
+    updateDistances();
+    if (hasCardAt(x, y)) return isReachable(x, y) ? 0 : -1;
+    // Every cell outside the region is empty, so the shortest path goes through the region's edge
+    int cx = Math.max(distanceX, Math.min(distanceX + distanceWidth - 1, x));
+    int cy = Math.max(distanceY, Math.min(distanceY + distanceHeight - 1, y));
+    int d = distances[(cx - distanceX) * distanceHeight + (cy - distanceY)];
+    return d < 0 ? -1 : d + Math.abs(x - cx) + Math.abs(y - cy);
+  }
+
+  @Override
+  public final int goalDistance(Board.GoalPosition goal) {
+    updateDistances();
+    return goalDistances[goal.ordinal()];
+  }
+
+  /**
+   * Returns what {@link SparseBoard#goalDistance(Board.GoalPosition)} would be after placing a path
+   * card of the specified type and rotation on <code>(x, y)</code>. The board itself is left unchanged.
+   * <p>
+   * The cards the placed card would connect are followed through the cell store, and the distance
+   * field is rebuilt on reusable scratch arrays, which only grow with the bounding box.
+   * </p>
+   *
+   * @param type    the path type
+   * @param rotated <code>true</code> if the card is rotated
+   * @param x       the target x position
+   * @param y       the target y position
+   * @param goal    the goal position
+   * @return the distance after the placement, or <code>-1</code> if the card is not placeable there
+   *         or the goal cannot be reached
+   */
+  @Override
+  public final int goalDistanceAfter(PathCard.Type type, boolean rotated, int x, int y,
+                                     Board.GoalPosition goal) {
+    if (!isCardPlaceableAt(type, rotated, x, y)) return -1;
+    Position target = goalPosition(goal);
+    if (isReachable(target.x, target.y)) return 0;
+
+    // The card may grow the bounding box by one cell, which the margin covers
+    int ox = minX - MARGIN, oy = minY - MARGIN;
+    int rw = maxX - minX + 1 + MARGIN * 2, rh = maxY - minY + 1 + MARGIN * 2;
+    if (sources.length < rw * rh) sources = new int[rw * rh];
+    int count = 0;
+
+    // Follow the card's path sides to the cards it would connect, whose empty neighbours join the sources
+    int pathDirections = OrientedPath.of(type, rotated).pathDirections();
+    int length = 0, marked = 0;
+    boolean connected = false;
+    for (int dir = 0; dir < 4; dir++) {
+      if ((pathDirections & (1 << dir)) == 0) continue;
+      queue[length++] = CellTable.key(x + DX[dir], y + DY[dir]);
+    }
+    while (length > 0) {
+      long key = queue[--length];
+      int nx = CellTable.x(key), ny = CellTable.y(key);
+      if (nx == x && ny == y) continue;
+      int slot = cells.find(nx, ny);
+      if (slot < 0 || !cells.cell(slot).hasCard()) {
+        // Empty cells next to the network are already frontier sources
+        if ((slot < 0 || (cells.flags(slot) & FRONTIER) == 0) && isInBoard(nx, ny)) {
+          if (count == sources.length) sources = Arrays.copyOf(sources, count * 2);
+          sources[count++] = (nx - ox) * rh + (ny - oy);
+        }
+        continue;
+      }
+      if ((cells.flags(slot) & (REACHABLE | VISITED)) != 0) continue;
+      cells.setFlags(slot, cells.flags(slot) | VISITED);
+      if (marked == visited.length) visited = Arrays.copyOf(visited, marked * 2);
+      visited[marked++] = slot;
+      if (nx == target.x && ny == target.y) connected = true;
+      for (int dir = 0; dir < 4; dir++) {
+        if (cells.cell(slot).side(dir) != Cell.Side.PATH) continue;
+        if (length == queue.length) queue = Arrays.copyOf(queue, length * 2);
+        queue[length++] = CellTable.key(nx + DX[dir], ny + DY[dir]);
+      }
+    }
+    for (int i = 0; i < marked; i++) cells.setFlags(visited[i], cells.flags(visited[i]) & ~VISITED);
+    if (connected) return 0;
+
+    for (int slot = 0; slot < cells.capacity(); slot++) {
+      if ((cells.flags(slot) & FRONTIER) != 0) {
+        if (count == sources.length) sources = Arrays.copyOf(sources, count * 2);
+        sources[count++] = (cells.cell(slot).x() - ox) * rh + (cells.cell(slot).y() - oy);
+      }
+    }
+    int excluded = (x - ox) * rh + (y - oy);
+    if (whatIf.length < rw * rh) whatIf = new int[rw * rh];
+    distances(whatIf, sources, count, excluded, ox, oy, rw, rh);
+    return goalDistance(whatIf, target, excluded, ox, oy, rh);
+  }
+
+  /**
+   * Recomputes the distance field if the board has changed since it was last computed.
+   * The field is rebuilt with a breadth-first search from the frontier
+   */
+  private void updateDistances() {
+    if (distanceVersion == version) return;
+    distanceX = minX - MARGIN;
+    distanceY = minY - MARGIN;
+    distanceWidth = maxX - minX + 1 + MARGIN * 2;
+    distanceHeight = maxY - minY + 1 + MARGIN * 2;
+    int size = distanceWidth * distanceHeight;
+    if (sources.length < size) sources = new int[size];
+    if (distances.length < size) distances = new int[size];
+    int count = 0;
+    for (int slot = 0; slot < cells.capacity(); slot++) {
+      if ((cells.flags(slot) & FRONTIER) != 0) {
+        sources[count++] = (cells.cell(slot).x() - distanceX) * distanceHeight + (cells.cell(slot).y() - distanceY);
+      }
+    }
+    distances(distances, sources, count, -1, distanceX, distanceY, distanceWidth, distanceHeight);
+
+    for (Board.GoalPosition goal : Board.GoalPosition.values()) {
+      Position target = goalPosition(goal);
+      goalDistances[goal.ordinal()] = isReachable(target.x, target.y)
+        ? 0 : goalDistance(distances, target, -1, distanceX, distanceY, distanceHeight);
+    }
+    distanceVersion = version;
+  }
+
+  /**
+   * Computes breadth-first distances through the empty cells of the specified region.
+   * Cells are indexed by <code>(x - ox) * rh + (y - oy)</code>, and cells in
+   * <code>sources</code> are at distance 1
+   *
+   * @param dist     the distance of every cell, or <code>-1</code> if not reached, to be filled
+   * @param sources  the indices of the cells at distance 1
+   * @param count    the number of sources
+   * @param excluded the index of a cell the search may not enter, or <code>-1</code>
+   * @param ox       the x origin of the region
+   * @param oy       the y origin of the region
+   * @param rw       the width of the region
+   * @param rh       the height of the region
+   */
+  private void distances(int[] dist, int[] sources, int count, int excluded, int ox, int oy, int rw, int rh) {
+    Arrays.fill(dist, 0, rw * rh, -1);
+    if (order.length < rw * rh) order = new int[rw * rh];
+    int head = 0, tail = 0;
+    for (int s = 0; s < count; s++) {
+      if (sources[s] == excluded || dist[sources[s]] >= 0) continue;
+      dist[sources[s]] = 1;
+      order[tail++] = sources[s];
+    }
+    while (head < tail) {
+      int i = order[head++];
+      int x = i / rh, y = i % rh;
+      for (int dir = 0; dir < 4; dir++) {
+        int nx = x + DX[dir], ny = y + DY[dir];
+        if (nx < 0 || nx >= rw || ny < 0 || ny >= rh) continue;
+        int n = nx * rh + ny;
+        if (n == excluded || dist[n] >= 0 || hasCardAt(nx + ox, ny + oy)) continue;
+        dist[n] = dist[i] + 1;
+        order[tail++] = n;
+      }
+    }
+  }
+
+  /**
+   * Returns the smallest distance among the empty neighbours of the specified goal
+   *
+   * @param dist     the distance field of the region
+   * @param target   the goal's position
+   * @param excluded the index of a cell to be skipped, or <code>-1</code>
+   * @param ox       the x origin of the region
+   * @param oy       the y origin of the region
+   * @param rh       the height of the region
+   * @return the distance, or <code>-1</code> if no neighbour is reached
+   */
+  private int goalDistance(int[] dist, Position target, int excluded, int ox, int oy, int rh) {
+    int best = -1;
+    for (int dir = 0; dir < 4; dir++) {
+      int nx = target.x + DX[dir], ny = target.y + DY[dir];
+      int n = (nx - ox) * rh + (ny - oy);
+      if (n == excluded || hasCardAt(nx, ny) || dist[n] < 0) continue;
+      if (best < 0 || dist[n] < best) best = dist[n];
+    }
+    return best;
+  }
+
+  @Override
+  public final Position startPosition() { return start; }
+
+  @Override
+  public final Position topGoalPosition() { return topGoalPos; }
+
+  @Override
+  public final Position middleGoalPosition() { return middleGoalPos; }
+
+  @Override
+  public final Position bottomGoalPosition() { return bottomGoalPos; }
+
+  /**
+   * Returns the goal type on the specified goal position
+   *
+   * @param goalPosition the goal position
+   * @return the goal type
+   */
+  @Override
+  final GoalType peekGoal(Board.GoalPosition goalPosition) {
+    switch (goalPosition) {
+      case TOP:
+        return topGoal;
+      case MIDDLE:
+        return middleGoal;
+      case BOTTOM:
+        return bottomGoal;
+      default:
+        return null;
+    }
+  }
+}
@@ -0,0 +1,68 @@
+package model;
+
+/**
+ * The {@link TimeControl} class represents a chess-clock time control for AI decisions.
+ * <p>
+ * Every player starts a round with a time bank of {@link TimeControl#initialMillis()}.
+ * A decision may use the whole bank; the time it takes is withdrawn from the bank, and
+ * {@link TimeControl#incrementMillis()} is added back after every move. Quick decisions
+ * thus save time for the hard ones. A decision that overruns the bank is timed out like
+ * a decision that overruns a fixed timeout.
+ * </p>
+ *
+ * @see GameLogicController#setTimeControl(TimeControl)
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public final class TimeControl {
+  /** The time bank of every player at the start of a round, in milliseconds */
+  private final long initialMillis;
+  /** The time added to a player's bank after each move, in milliseconds */
+  private final long incrementMillis;
+
+  /**
+   * Creates a {@link TimeControl} object
+   *
+   * @param initialMillis   the initial time bank, in milliseconds
+   * @param incrementMillis the time added after each move, in milliseconds
+   */
+  public TimeControl(long initialMillis, long incrementMillis) {
+    if (initialMillis <= 0) throw new IllegalArgumentException("The initial time bank must be positive");
+    if (incrementMillis < 0) throw new IllegalArgumentException("The increment cannot be negative");
+    this.initialMillis = initialMillis;
+    this.incrementMillis = incrementMillis;
+  }
+
+  /**
+   * Parses a time control written as <code>initial+increment</code> in milliseconds, such
+   * as <code>60000+500</code>. The increment may be left out
+   *
+   * @param text the time control
+   * @return the time control
+   * @throws NumberFormatException when the text is not a time control
+   */
+  public static TimeControl parse(String text) {
+    int plus = text.indexOf('+');
+    if (plus < 0) return new TimeControl(Long.parseLong(text.trim()), 0);
+    return new TimeControl(Long.parseLong(text.substring(0, plus).trim()),
+                           Long.parseLong(text.substring(plus + 1).trim()));
+  }
+
+  /**
+   * Returns the time bank of every player at the start of a round
+   *
+   * @return the initial time bank, in milliseconds
+   */
+  public final long initialMillis() { return initialMillis; }
+
+  /**
+   * Returns the time added to a player's bank after each move
+   *
+   * @return the increment, in milliseconds
+   */
+  public final long incrementMillis() { return incrementMillis; }
+
+  @Override
+  public String toString() {
+    return initialMillis + "+" + incrementMillis;
+  }
+}
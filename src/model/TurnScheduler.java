@@ -0,0 +1,89 @@
+package model;
+
+import ai.AI;
+
+/**
+ * The {@link TurnScheduler} class drives a round between {@link AI} players in a loop.
+ * <p>
+ * Instead of prompting the next player from inside {@link GameLogicController#finalizeTurn()},
+ * the scheduler owns the whole turn: it asks the current AI for its decision, plays it,
+ * and finalizes the turn with {@link GameLogicController#advanceTurn()}. The Java stack
+ * stays the same however long the round is, and since every call to
+ * {@link TurnScheduler#step()} plays exactly one turn, a round can be paused and resumed
+ * at any turn, or interleaved with the rounds of other games on the same thread.
+ * </p>
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public final class TurnScheduler {
+  /** The scheduled game */
+  private final GameLogicController game;
+  /** The number of turns played in the current round */
+  private int turns;
+
+  /**
+   * Creates a {@link TurnScheduler} object for the specified game
+   *
+   * @param game the game, whose players are all AIs
+   * @throws GameException when a player is not an AI
+   */
+  public TurnScheduler(GameLogicController game) throws GameException {
+    for (int i = 0; i < game.numPlayers(); i++) {
+      if (!(game.playerAt(i) instanceof AI)) {
+        String name = game.playerAt(i).name();
+        throw new GameException("%s is not an AI and cannot be scheduled", name);
+      }
+    }
+    this.game = game;
+  }
+
+  /**
+   * Starts a new round, without playing any turn
+   *
+   * @throws GameException when game is running
+   */
+  public final void startRound() throws GameException {
+    game.initializeRound();
+    game.beginRound();
+    this.turns = 0;
+  }
+
+  /**
+   * Plays the current player's turn: asks for a decision, plays it, and passes the turn
+   *
+   * @return <code>true</code> if the round goes on, or <code>false</code> if it is finished
+   */
+  public final boolean step() {
+    if (!game.started()) return false;
+    AI ai = (AI) game.playerAt(game.currentPlayerIndex());
+    ai.play(ai.decide());
+    turns++;
+    return game.advanceTurn();
+  }
+
+  /**
+   * Plays turns until the round finishes or the specified number of turns is played
+   *
+   * @param maxTurns the maximum number of turns to be played
+   * @return <code>true</code> if the round is finished
+   */
+  public final boolean run(int maxTurns) {
+    for (int i = 0; i < maxTurns; i++) {
+      if (!step()) break;
+    }
+    return game.finished();
+  }
+
+  /**
+   * Returns the number of turns played in the current round
+   *
+   * @return the number of turns
+   */
+  public final int turns() { return turns; }
+
+  /**
+   * Returns the scheduled game
+   *
+   * @return the game
+   */
+  public final GameLogicController game() { return game; }
+}
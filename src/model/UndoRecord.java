@@ -0,0 +1,123 @@
+package model;
+
+import model.cards.Card;
+import model.cards.PathCard;
+
+/**
+ * The {@link UndoRecord} class records what a {@link Move} changed in a {@link GameState},
+ * so that the move can be taken back with {@link GameLogicController#undo(GameState, UndoRecord)}.
+ * <p>
+ * A record only keeps the cards that changed hands and the few values that were
+ * overwritten, so applying and undoing a move never copies the game state.
+ * </p>
+ *
+ * @see GameLogicController#apply(GameState, Move)
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public final class UndoRecord {
+  /** The applied move */
+  private final Move move;
+  /** The current player index before the move */
+  private final int playerIndex;
+  /** The card taken from the player's hand */
+  private final Card card;
+  /** The card as it was played, in the move's rotation for path cards */
+  private Card played;
+  /** The card drawn from the deck, or <code>null</code> if the deck was empty */
+  private Card drawn;
+  /** The path card removed by a rockfall */
+  private PathCard removed;
+  /** The tools repaired by a repair card, as a bit set of {@link Tool} ordinals */
+  private int repaired;
+
+  /**
+   * Creates an {@link UndoRecord} object for the specified move
+   *
+   * @param move        the applied move
+   * @param playerIndex the current player index before the move
+   * @param card        the card taken from the player's hand
+   */
+  UndoRecord(Move move, int playerIndex, Card card) {
+    this.move = move;
+    this.playerIndex = playerIndex;
+    this.card = card;
+    this.played = card;
+  }
+
+  /**
+   * Returns the applied move
+   *
+   * @return the move
+   */
+  public final Move move() { return move; }
+
+  /**
+   * Returns the current player index before the move
+   *
+   * @return the previous player index
+   */
+  final int playerIndex() { return playerIndex; }
+
+  /**
+   * Returns the card taken from the player's hand
+   *
+   * @return the card
+   */
+  final Card card() { return card; }
+
+  /**
+   * Returns the card as it was played
+   *
+   * @return the played card
+   */
+  final Card played() { return played; }
+
+  /**
+   * Sets the card as it was played
+   *
+   * @param played the played card
+   */
+  final void setPlayed(Card played) { this.played = played; }
+
+  /**
+   * Returns the card drawn from the deck
+   *
+   * @return the drawn card, or <code>null</code> if the deck was empty
+   */
+  final Card drawn() { return drawn; }
+
+  /**
+   * Sets the card drawn from the deck
+   *
+   * @param drawn the drawn card
+   */
+  final void setDrawn(Card drawn) { this.drawn = drawn; }
+
+  /**
+   * Returns the path card removed by a rockfall
+   *
+   * @return the removed card
+   */
+  final PathCard removed() { return removed; }
+
+  /**
+   * Sets the path card removed by a rockfall
+   *
+   * @param removed the removed card
+   */
+  final void setRemoved(PathCard removed) { this.removed = removed; }
+
+  /**
+   * Returns the tools repaired by a repair card
+   *
+   * @return the repaired tools, as a bit set of {@link Tool} ordinals
+   */
+  final int repaired() { return repaired; }
+
+  /**
+   * Sets the tools repaired by a repair card
+   *
+   * @param repaired the repaired tools, as a bit set of {@link Tool} ordinals
+   */
+  final void setRepaired(int repaired) { this.repaired = repaired; }
+}
@@ -0,0 +1,123 @@
+package model;
+
+import model.cards.OrientedPath;
+
+/**
+ * The {@link Zobrist} class provides the 64-bit Zobrist keys used to hash game positions.
+ * <p>
+ * A position's hash is the XOR of the keys of every feature it contains: each path card
+ * with its cell and orientation, each goal card with its position, each sabotaged tool
+ * with its player, the current player, and the deck size. Boards and players keep their
+ * part of the hash up to date on every change, so hashing a position is constant-time,
+ * and the hash after a hypothetical change can be derived by XOR-ing the changed keys.
+ * </p>
+ * <p>
+ * Keys are derived from their features by a mixing function instead of random tables,
+ * so they are the same in every run and cover boards of any size.
+ * </p>
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public final class Zobrist {
+  /** The domain of the path card keys */
+  private static final long CELL = 0x243F6A8885A308D3L;
+  /** The domain of the goal card keys */
+  private static final long GOAL = 0x13198A2E03707344L;
+  /** The domain of the sabotaged tool keys */
+  private static final long TOOL = 0xA4093822299F31D0L;
+  /** The domain of the current player keys */
+  private static final long TURN = 0x082EFA98EC4E6C89L;
+  /** The domain of the deck size keys */
+  private static final long DECK = 0x452821E638D01377L;
+
+  private Zobrist() {}
+
+  /**
+   * Returns the key of a path card of the specified orientation on the cell at <code>(x, y)</code>
+   *
+   * @param x           the x position
+   * @param y           the y position
+   * @param orientation the orientation number, see {@link OrientedPath#index()}
+   * @return the key
+   */
+  public static long cell(int x, int y, int orientation) {
+    return key(CELL, ((long) x << 32) | (y & 0xffffffffL), orientation);
+  }
+
+  /**
+   * Returns the key of the specified oriented path on the cell at <code>(x, y)</code>
+   *
+   * @param x    the x position
+   * @param y    the y position
+   * @param path the oriented path
+   * @return the key
+   */
+  public static long cell(int x, int y, OrientedPath path) {
+    return cell(x, y, path.index());
+  }
+
+  /**
+   * Returns the key of a goal card of the specified type on the specified goal position
+   *
+   * @param position the goal position
+   * @param type     the goal type
+   * @return the key
+   */
+  public static long goal(Board.GoalPosition position, GoalType type) {
+    return key(GOAL, position.ordinal(), type.ordinal());
+  }
+
+  /**
+   * Returns the key of the specified sabotaged tool of the specified player
+   *
+   * @param playerIndex the player's index
+   * @param tool        the sabotaged tool
+   * @return the key
+   */
+  public static long tool(int playerIndex, Tool tool) {
+    return key(TOOL, playerIndex, tool.ordinal());
+  }
+
+  /**
+   * Returns the key of the specified current player
+   *
+   * @param playerIndex the current player's index
+   * @return the key
+   */
+  public static long turn(int playerIndex) {
+    return key(TURN, playerIndex, 0);
+  }
+
+  /**
+   * Returns the key of the specified deck size
+   *
+   * @param size the number of cards left in the deck
+   * @return the key
+   */
+  public static long deck(int size) {
+    return key(DECK, size, 0);
+  }
+
+  /**
+   * Derives the key of a feature from its domain and values
+   *
+   * @param domain the feature domain
+   * @param a      the first value
+   * @param b      the second value
+   * @return the key
+   */
+  private static long key(long domain, long a, long b) {
+    return mix(mix(domain ^ a) + b);
+  }
+
+  /**
+   * The SplitMix64 finalizer, a bijective 64-bit mixing function
+   *
+   * @param z the value to be mixed
+   * @return the mixed value
+   */
+  private static long mix(long z) {
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+}
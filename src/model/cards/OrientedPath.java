@@ -0,0 +1,194 @@
+package model.cards;
+
+/**
+ * The {@link OrientedPath} class represents a path type in one of its two rotations.
+ * <p>
+ * Oriented paths are immutable, precomputed values: there is exactly one instance for
+ * each path type and rotation, obtained from {@link OrientedPath#of(PathCard.Type, boolean)}.
+ * The four sides are held in a bitcode, with the {@link PathCard.Side} ordinal of the top,
+ * right, bottom, and left sides at bits 0, 2, 4, and 6 respectively, so reading a side
+ * never allocates. Unlike the rotation of a {@link PathCard}, an oriented path can be
+ * shared freely, including between threads.
+ * </p>
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public final class OrientedPath {
+  /** Cached {@link PathCard.Side} values, indexed by ordinal */
+  private static final PathCard.Side[] SIDES = PathCard.Side.values();
+  /** The number of distinct oriented paths */
+  public static final int COUNT = PathCard.Type.values().length * 2;
+  /** All oriented paths, indexed by {@link OrientedPath#index()} */
+  private static final OrientedPath[] VALUES = new OrientedPath[COUNT];
+
+  static {
+    for (PathCard.Type type : PathCard.Type.values()) {
+      VALUES[type.ordinal() * 2] = new OrientedPath(type, false);
+      VALUES[type.ordinal() * 2 + 1] = new OrientedPath(type, true);
+    }
+  }
+
+  /** The path type */
+  private final PathCard.Type type;
+  /** Marks whether the path is rotated from its default position */
+  private final boolean rotated;
+  /** The index of the oriented path */
+  private final int index;
+  /** The side bitcode */
+  private final int code;
+  /** The directions of the path sides, as a bit set */
+  private final int pathDirections;
+
+  /**
+   * Creates an {@link OrientedPath} object of the specified type and rotation
+   *
+   * @param type    the path type
+   * @param rotated <code>true</code> if the path is rotated
+   */
+  private OrientedPath(PathCard.Type type, boolean rotated) {
+    this.type = type;
+    this.rotated = rotated;
+    this.index = type.ordinal() * 2 + (rotated ? 1 : 0);
+
+    int code = 0, pathDirections = 0;
+    for (int dir = 0; dir < 4; dir++) {
+      // A rotation turns the card upside down, swapping opposite sides
+      PathCard.Side side = type.sides[rotated ? (dir + 2) & 3 : dir];
+      code |= side.ordinal() << (dir * 2);
+      if (side == PathCard.Side.PATH) pathDirections |= 1 << dir;
+    }
+    this.code = code;
+    this.pathDirections = pathDirections;
+  }
+
+  /**
+   * Returns the oriented path of the specified type and rotation
+   *
+   * @param type    the path type
+   * @param rotated <code>true</code> if the path is rotated
+   * @return the oriented path
+   */
+  public static OrientedPath of(PathCard.Type type, boolean rotated) {
+    return VALUES[type.ordinal() * 2 + (rotated ? 1 : 0)];
+  }
+
+  /**
+   * Returns the oriented path of the specified index
+   *
+   * @param index the index, <code>type.ordinal() * 2 + (rotated ? 1 : 0)</code>
+   * @return the oriented path
+   */
+  public static OrientedPath of(int index) {
+    return VALUES[index];
+  }
+
+  /**
+   * Returns every oriented path, ordered by index
+   *
+   * @return an array of all oriented paths
+   */
+  public static OrientedPath[] values() {
+    return VALUES.clone();
+  }
+
+  /**
+   * Returns the path type
+   *
+   * @return the path type
+   */
+  public final PathCard.Type type() { return type; }
+
+  /**
+   * Returns the rotation of the path
+   *
+   * @return <code>true</code> if the path is rotated
+   */
+  public final boolean rotated() { return rotated; }
+
+  /**
+   * Returns the index of the oriented path, <code>type.ordinal() * 2 + (rotated ? 1 : 0)</code>
+   *
+   * @return the index
+   */
+  public final int index() { return index; }
+
+  /**
+   * Returns the side bitcode, holding the {@link PathCard.Side} ordinal of each side
+   * at bits <code>2 * direction</code>
+   *
+   * @return the side bitcode
+   */
+  public final int code() { return code; }
+
+  /**
+   * Returns the directions of the path sides as a bit set, with bit <code>direction</code>
+   * set for every {@link PathCard.Side#PATH} side
+   *
+   * @return the path directions
+   */
+  public final int pathDirections() { return pathDirections; }
+
+  /**
+   * Returns the general type of the path
+   *
+   * @return {@link Card.Type#PATHWAY} or {@link Card.Type#DEADEND}
+   */
+  public final Card.Type cardType() { return type.type; }
+
+  /**
+   * Returns the same path type in the other rotation
+   *
+   * @return the rotated oriented path
+   */
+  public final OrientedPath rotate() { return VALUES[index ^ 1]; }
+
+  /**
+   * Returns the side value in the specified direction
+   *
+   * @param dir the direction: 0 for top, 1 for right, 2 for bottom, and 3 for left
+   * @return the side value
+   */
+  public final PathCard.Side side(int dir) { return SIDES[(code >>> (dir * 2)) & 3]; }
+
+  /**
+   * Returns the top side value
+   *
+   * @return the top side value
+   */
+  public final PathCard.Side topSide() { return side(0); }
+
+  /**
+   * Returns the right side value
+   *
+   * @return the right side value
+   */
+  public final PathCard.Side rightSide() { return side(1); }
+
+  /**
+   * Returns the bottom side value
+   *
+   * @return the bottom side value
+   */
+  public final PathCard.Side bottomSide() { return side(2); }
+
+  /**
+   * Returns the left side value
+   *
+   * @return the left side value
+   */
+  public final PathCard.Side leftSide() { return side(3); }
+
+  /**
+   * Returns a new array of {@link PathCard.Side} representing the top, right, bottom,
+   * and left sides respectively
+   *
+   * @return the sides of the path
+   */
+  public final PathCard.Side[] sides() {
+    return new PathCard.Side[]{side(0), side(1), side(2), side(3)};
+  }
+
+  @Override
+  public String toString() {
+    return type.name() + (rotated ? " (rotated)" : "");
+  }
+}
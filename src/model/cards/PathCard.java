@@ -102,13 +102,25 @@ public class PathCard extends Card {
     if (card.rotated()) this.rotate();
   }
 
+  /**
+   * Creates a {@link PathCard} object copy based on another card, in the specified rotation
+   *
+   * @param card    the card to be copied
+   * @param rotated the rotation of the copy
+   */
+  private PathCard(PathCard card, boolean rotated) {
+    this(card.id(), card.pathType);
+    this.rotated = rotated;
+  }
+
   /**
    * Toggles the rotation of the path card
    */
   public final void rotate() { rotated = !rotated; }
 
   /**
-   * Sets the rotation flag of the path card
+   * Sets the rotation flag of the path card. Placements can be evaluated in either
+   * rotation without changing the card, see {@link OrientedPath}
    *
    * @param rotated <code>true</code> if card is rotated from its default position
    */
@@ -130,47 +142,56 @@ public class PathCard extends Card {
    */
   public final boolean rotated() { return this.rotated; }
 
+  /**
+   * Returns the {@link OrientedPath} matching the card's type and current rotation
+   *
+   * @return the card's oriented path
+   */
+  public final OrientedPath orientation() { return OrientedPath.of(pathType, rotated); }
+
   /**
    * Returns an array of {@link PathCard.Side} representing the card's
    * top, right, bottom, and left sides respectively
    *
    * @return the sides of the card
    */
-  public final Side[] sides() {
-    Side[] sides = pathType.sides.clone();
-    if (rotated) {
-      return new Side[]{sides[2], sides[3], sides[0], sides[1]};
-    }
-    return sides;
-  }
+  public final Side[] sides() { return orientation().sides(); }
+
+  /**
+   * Returns the side value in the specified direction
+   *
+   * @param dir the direction: 0 for top, 1 for right, 2 for bottom, and 3 for left
+   * @return the side value
+   */
+  public final Side side(int dir) { return orientation().side(dir); }
 
   /**
    * Returns the top side value
    *
    * @return the top side value
    */
-  public final Side topSide() { return sides()[0]; }
+  public final Side topSide() { return orientation().topSide(); }
 
   /**
    * Returns the right side value
    *
    * @return the right side value
    */
-  public final Side rightSide() { return sides()[1]; }
+  public final Side rightSide() { return orientation().rightSide(); }
 
   /**
    * Returns the bottom side value
    *
    * @return the bottom side value
    */
-  public final Side bottomSide() { return sides()[2]; }
+  public final Side bottomSide() { return orientation().bottomSide(); }
 
   /**
    * Returns the left side value
    *
    * @return the left side value
    */
-  public final Side leftSide() { return sides()[3]; }
+  public final Side leftSide() { return orientation().leftSide(); }
 
   @Override
   public final String name() { return pathType.name(); }
@@ -182,4 +203,14 @@ public class PathCard extends Card {
   public final PathCard copy() {
     return new PathCard(this);
   }
+
+  /**
+   * Creates a copy of the card in the specified rotation, leaving this card unchanged
+   *
+   * @param rotated the rotation of the copy
+   * @return the card copy
+   */
+  public final PathCard copy(boolean rotated) {
+    return new PathCard(this, rotated);
+  }
 }
@@ -24,10 +24,12 @@ public class PlayerActionCard extends Card {
     REPAIR_LANTERN_PICKAXE(Card.Type.REPAIR, Tool.LANTERN, Tool.PICKAXE);
     Card.Type type;
     Tool[] effects;
+    int effectMask;
 
     Type(Card.Type type, Tool... effects) {
       this.type = type;
       this.effects = effects;
+      for (Tool tool : effects) this.effectMask |= 1 << tool.ordinal();
     }
   }
 
@@ -74,6 +76,15 @@ public class PlayerActionCard extends Card {
     return this.playerActionType.effects.clone();
   }
 
+  /**
+   * Returns the effects of the player-action card as a bit set, without copying
+   *
+   * @return the effects of the card, as a bit set of {@link Tool} ordinals
+   */
+  public final int effectMask() {
+    return this.playerActionType.effectMask;
+  }
+
   @Override
   public final String name() {
     return this.playerActionType.name();